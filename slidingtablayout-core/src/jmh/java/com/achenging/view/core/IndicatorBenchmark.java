@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 achenging
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.achenging.view.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the work the tab strip does on every frame of a swipe, and of rebuilding its geometry
+ * after a layout pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IndicatorBenchmark {
+
+    // Frames of a swipe from one page to the next, at 60 fps over ~300 ms
+    private static final int FRAMES_PER_PAGE = 18;
+
+    @Param({"10", "100", "1000"})
+    public int tabCount;
+
+    private final TabGeometry    mGeometry       = new TabGeometry();
+    private final TitleColorRamp mTitleColorRamp = new TitleColorRamp();
+
+    private final int[] mIndicatorColors  = {0xFF33B5E5, 0xFFFFBB33};
+    private final int[] mSelectedColors   = {0xFFFFFFFF};
+    private final int[] mUnselectedColors = {0x99FFFFFF, 0x80FFFFFF, 0x66FFFFFF};
+
+    private int[] mTabWidths;
+    private int[] mTitleWidths;
+
+    private int mFrame;
+    private int mScrollX;
+
+    @Setup
+    public void setUp() {
+        mTabWidths = new int[tabCount];
+        mTitleWidths = new int[tabCount];
+        for (int i = 0; i < tabCount; i++) {
+            mTitleWidths[i] = 40 + (i * 37) % 120;
+            mTabWidths[i] = mTitleWidths[i] + 32;
+        }
+        mGeometry.setTabWidths(mTabWidths, mTitleWidths);
+        mGeometry.updateIndicatorEdges(1);
+    }
+
+    /**
+     * One frame of a swipe: interpolate the indicator and its color, crossfade the titles of the
+     * two tabs involved and compute the scroll target.
+     */
+    @Benchmark
+    public int swipeFrame() {
+        // Masked, so that the frame stays positive once the counter wraps around
+        final int frame = mFrame++ & Integer.MAX_VALUE;
+        final int position = (frame / FRAMES_PER_PAGE) % (tabCount - 1);
+        final float offset = (frame % FRAMES_PER_PAGE) / (float) FRAMES_PER_PAGE;
+
+        mGeometry.interpolateIndicator(position, offset);
+        final int indicatorColor = TabColors.blendColors(
+                TabColors.colorAt(mIndicatorColors, position + 1),
+                TabColors.colorAt(mIndicatorColors, position), offset);
+
+        final int selectedColor = mTitleColorRamp.getColor(
+                TabColors.colorAt(mUnselectedColors, position),
+                TabColors.colorAt(mSelectedColors, position), 1f - offset);
+        final int nextColor = mTitleColorRamp.getColor(
+                TabColors.colorAt(mUnselectedColors, position + 1),
+                TabColors.colorAt(mSelectedColors, position + 1), offset);
+
+        final int scrollTarget = mGeometry.getTabLeft(position)
+                + (int) (offset * mGeometry.getTabWidth(position));
+        return mGeometry.getIndicatorLeft() + mGeometry.getIndicatorRight() + indicatorColor
+                + selectedColor + nextColor + scrollTarget;
+    }
+
+    /**
+     * Look up the tab under a scroll position, as the virtualized strip does on every scroll.
+     */
+    @Benchmark
+    public int findTabAt() {
+        // Wrapped at the content width before it can overflow
+        mScrollX = (mScrollX + 7) % (mGeometry.getContentWidth() + 1);
+        return mGeometry.findTabAt(mScrollX);
+    }
+
+    /**
+     * Rebuild the geometry after a layout pass.
+     */
+    @Benchmark
+    public int rebuildGeometry() {
+        mGeometry.setTabWidths(mTabWidths, mTitleWidths);
+        mGeometry.updateIndicatorEdges(1);
+        return mGeometry.getContentWidth();
+    }
+}
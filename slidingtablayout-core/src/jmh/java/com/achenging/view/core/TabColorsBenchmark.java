@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 achenging
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.achenging.view.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the color arithmetic used while a swipe is in progress.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TabColorsBenchmark {
+
+    private final int[] mColors = {0xFF33B5E5, 0xFFAA66CC, 0xFF99CC00, 0xFFFFBB33, 0xFFFF4444};
+
+    public int   color1 = 0xFF33B5E5;
+    public int   color2 = 0x80FFBB33;
+    public float ratio  = 0.37f;
+
+    // Cycled over 0 to 7, so that positions both within and past mColors are looked up
+    private int mPosition;
+
+    @Benchmark
+    public int blendColors() {
+        return TabColors.blendColors(color1, color2, ratio);
+    }
+
+    @Benchmark
+    public int blendArgb() {
+        return TabColors.blendArgb(color1, color2, ratio);
+    }
+
+    @Benchmark
+    public int setColorAlpha() {
+        return TabColors.setColorAlpha(color1, 0x20);
+    }
+
+    @Benchmark
+    public int colorAt() {
+        return TabColors.colorAt(mColors, mPosition++ & 7);
+    }
+
+    /**
+     * The plain modulo lookup {@link TabColors#colorAt(int[], int)} replaces, for comparison.
+     */
+    @Benchmark
+    public int colorAtModulo() {
+        final int position = mPosition++ & 7;
+        return mColors[position % mColors.length];
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 achenging
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.achenging.view.core;
+
+/**
+ * Color arithmetic of the tab strip on packed ARGB ints, independent of the Android framework.
+ */
+public final class TabColors {
+
+    private TabColors() {
+    }
+
+    /**
+     * @return the color at {@code position} of {@code colors}, treated as a circular array.
+     */
+    public static int colorAt(int[] colors, int position) {
+        return position < colors.length ? colors[position] : colors[position % colors.length];
+    }
+
+    /**
+     * Set the alpha value of the {@code color} to be the given {@code alpha} value.
+     */
+    public static int setColorAlpha(int color, int alpha) {
+        return (alpha << 24) | (color & 0x00FFFFFF);
+    }
+
+    /**
+     * Blend {@code color1} and {@code color2} using the given ratio. The result is opaque.
+     *
+     * @param ratio of which to blend. 1.0 will return {@code color1}, 0.5 will give an even blend,
+     *              0.0 will return {@code color2}.
+     */
+    public static int blendColors(int color1, int color2, float ratio) {
+        final float inverseRation = 1f - ratio;
+        float r = (red(color1) * ratio) + (red(color2) * inverseRation);
+        float g = (green(color1) * ratio) + (green(color2) * inverseRation);
+        float b = (blue(color1) * ratio) + (blue(color2) * inverseRation);
+        return argb(0xFF, (int) r, (int) g, (int) b);
+    }
+
+    /**
+     * Blend {@code color1} and {@code color2} including their alpha, interpolating the color
+     * channels premultiplied so that a transparent color does not tint the result.
+     *
+     * @param ratio of which to blend. 1.0 will return {@code color1}, 0.0 will return
+     *              {@code color2}.
+     */
+    public static int blendArgb(int color1, int color2, float ratio) {
+        final float inverseRatio = 1f - ratio;
+        final float a1 = alpha(color1) * ratio;
+        final float a2 = alpha(color2) * inverseRatio;
+        final float a = a1 + a2;
+        if (a == 0f) {
+            return 0;
+        }
+        int r = Math.round((red(color1) * a1 + red(color2) * a2) / a);
+        int g = Math.round((green(color1) * a1 + green(color2) * a2) / a);
+        int b = Math.round((blue(color1) * a1 + blue(color2) * a2) / a);
+        return argb(Math.round(a), r, g, b);
+    }
+
+    private static int argb(int alpha, int red, int green, int blue) {
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    private static int alpha(int color) {
+        return color >>> 24;
+    }
+
+    private static int red(int color) {
+        return (color >> 16) & 0xFF;
+    }
+
+    private static int green(int color) {
+        return (color >> 8) & 0xFF;
+    }
+
+    private static int blue(int color) {
+        return color & 0xFF;
+    }
+}
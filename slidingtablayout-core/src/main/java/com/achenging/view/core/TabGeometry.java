@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 achenging
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.achenging.view.core;
+
+import java.util.Arrays;
+
+/**
+ * Per-tab geometry of a tab strip: the left edge and width of every tab, the width of its title
+ * and the resulting indicator edges. It is rebuilt when the strip is laid out, so that drawing and
+ * scrolling during a swipe only need array lookups and a lerp.
+ */
+public final class TabGeometry {
+
+    private int   mTabCount;
+    private int[] mTabLefts        = new int[0];
+    private int[] mTabWidths       = new int[0];
+    private int[] mTitleWidths     = new int[0];
+    private int[] mIndicatorStarts = new int[0];
+    private int[] mIndicatorEnds   = new int[0];
+
+    private int mIndicatorLeft;
+    private int mIndicatorRight;
+
+    public int getTabCount() {
+        return mTabCount;
+    }
+
+    /**
+     * Resize the geometry for {@code tabCount} tabs, keeping the entries of the first tabs.
+     */
+    public void setTabCount(int tabCount) {
+        if (tabCount > mTabLefts.length) {
+            mTabLefts = Arrays.copyOf(mTabLefts, tabCount);
+            mTabWidths = Arrays.copyOf(mTabWidths, tabCount);
+            mTitleWidths = Arrays.copyOf(mTitleWidths, tabCount);
+            mIndicatorStarts = Arrays.copyOf(mIndicatorStarts, tabCount);
+            mIndicatorEnds = Arrays.copyOf(mIndicatorEnds, tabCount);
+        }
+        mTabCount = tabCount;
+    }
+
+    public void setTab(int position, int left, int width) {
+        mTabLefts[position] = left;
+        mTabWidths[position] = width;
+    }
+
+    public void setTitleWidth(int position, int titleWidth) {
+        mTitleWidths[position] = titleWidth;
+    }
+
+    /**
+     * Lay out tabs of the given widths next to each other, starting at 0.
+     */
+    public void setTabWidths(int[] tabWidths, int[] titleWidths) {
+        final int tabCount = tabWidths.length;
+        setTabCount(tabCount);
+        int left = 0;
+        for (int i = 0; i < tabCount; i++) {
+            mTabLefts[i] = left;
+            mTabWidths[i] = tabWidths[i];
+            mTitleWidths[i] = titleWidths[i];
+            left += tabWidths[i];
+        }
+    }
+
+    /**
+     * Center an indicator as wide as its title under every tab, shifted left by {@code inset}.
+     */
+    public void updateIndicatorEdges(int inset) {
+        for (int i = 0; i < mTabCount; i++) {
+            int titleWidth = mTitleWidths[i];
+            mIndicatorStarts[i] = mTabLefts[i] + (mTabWidths[i] - titleWidth) / 2 - inset;
+            mIndicatorEnds[i] = mIndicatorStarts[i] + titleWidth;
+        }
+    }
+
+    /**
+     * @return the scroll target of the tab at {@code position}, i.e. its left edge in the strip.
+     */
+    public int getTabLeft(int position) {
+        return position < mTabCount ? mTabLefts[position] : 0;
+    }
+
+    public int getTabWidth(int position) {
+        return position < mTabCount ? mTabWidths[position] : 0;
+    }
+
+    public int getTitleWidth(int position) {
+        return position < mTabCount ? mTitleWidths[position] : 0;
+    }
+
+    public int getContentWidth() {
+        return mTabCount > 0 ? mTabLefts[mTabCount - 1] + mTabWidths[mTabCount - 1] : 0;
+    }
+
+    /**
+     * @return the position of the tab containing {@code x}, clamped to the first tab.
+     */
+    public int findTabAt(int x) {
+        int index = Arrays.binarySearch(mTabLefts, 0, mTabCount, x);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return Math.max(0, index);
+    }
+
+    /**
+     * Interpolate the indicator edges for a selection {@code positionOffset} of the way from the
+     * tab at {@code position} to the next one. Read the result with {@link #getIndicatorLeft()}
+     * and {@link #getIndicatorRight()}.
+     *
+     * @return false if there is no tab at {@code position}.
+     */
+    public boolean interpolateIndicator(int position, float positionOffset) {
+        return interpolateIndicator(position, position + 1, positionOffset);
+    }
+
+    /**
+     * Interpolate the indicator edges {@code fraction} of the way from the tab at {@code position}
+     * to the one at {@code targetPosition}, which need not be next to it.
+     *
+     * @return false if there is no tab at {@code position}.
+     */
+    public boolean interpolateIndicator(int position, int targetPosition, float fraction) {
+        if (position < 0 || position >= mTabCount) {
+            mIndicatorLeft = 0;
+            mIndicatorRight = 0;
+            return false;
+        }
+
+        int left = mIndicatorStarts[position];
+        int right = mIndicatorEnds[position];
+        if (fraction > 0f && targetPosition >= 0 && targetPosition < mTabCount) {
+            // The selection is partway between the tabs
+            left = (int) (fraction * mIndicatorStarts[targetPosition] +
+                    (1.0f - fraction) * left);
+            right = (int) (fraction * mIndicatorEnds[targetPosition] +
+                    (1.0f - fraction) * right);
+        }
+        mIndicatorLeft = left;
+        mIndicatorRight = right;
+        return true;
+    }
+
+    public int getIndicatorLeft() {
+        return mIndicatorLeft;
+    }
+
+    public int getIndicatorRight() {
+        return mIndicatorRight;
+    }
+}
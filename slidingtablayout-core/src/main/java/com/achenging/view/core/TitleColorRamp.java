@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 achenging
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.achenging.view.core;
+
+/**
+ * Precomputed blends between the unselected and selected title color of a tab. Ramps are keyed by
+ * their pair of colors rather than by tab, so that tabs sharing colors share a ramp, and a few are
+ * kept so that both tabs of a scrolling pair always have one. Fully selected and unselected titles
+ * take their color as is, without a ramp.
+ */
+public final class TitleColorRamp {
+
+    // Steps between the unselected and selected color of a ramp
+    public static final int STEPS = 32;
+    // Ramps kept at once, replaced in turn
+    public static final int RAMPS = 4;
+
+    private final int[][] mRamps = new int[RAMPS][STEPS + 1];
+    private       int     mRampCount;
+    private       int     mNextRamp;
+
+    /**
+     * @return the title color {@code selectedFraction} of the way from {@code unselectedColor} to
+     * {@code selectedColor}.
+     */
+    public int getColor(int unselectedColor, int selectedColor, float selectedFraction) {
+        final int step = getStep(selectedFraction);
+        if (step == 0) {
+            return unselectedColor;
+        } else if (step == STEPS) {
+            return selectedColor;
+        }
+        return getRamp(unselectedColor, selectedColor)[step];
+    }
+
+    /**
+     * @return the index, from 0 to {@link #STEPS}, of the ramp step used for
+     * {@code selectedFraction}.
+     */
+    public static int getStep(float selectedFraction) {
+        final int step = Math.round(selectedFraction * STEPS);
+        return Math.min(Math.max(step, 0), STEPS);
+    }
+
+    /**
+     * @return the index of the ramp kept for the given colors, or -1 if there is none.
+     */
+    int findRamp(int unselectedColor, int selectedColor) {
+        for (int i = 0; i < mRampCount; i++) {
+            final int[] ramp = mRamps[i];
+            if (ramp[0] == unselectedColor && ramp[STEPS] == selectedColor) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int[] getRamp(int unselectedColor, int selectedColor) {
+        final int index = findRamp(unselectedColor, selectedColor);
+        if (index >= 0) {
+            return mRamps[index];
+        }
+
+        final int[] ramp;
+        if (mRampCount < RAMPS) {
+            ramp = mRamps[mRampCount++];
+        } else {
+            ramp = mRamps[mNextRamp];
+            mNextRamp = (mNextRamp + 1) % RAMPS;
+        }
+        ramp[0] = unselectedColor;
+        for (int i = 1; i < STEPS; i++) {
+            ramp[i] = TabColors.blendArgb(selectedColor, unselectedColor, i / (float) STEPS);
+        }
+        ramp[STEPS] = selectedColor;
+        return ramp;
+    }
+}
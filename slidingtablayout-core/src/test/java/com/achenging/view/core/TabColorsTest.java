@@ -0,0 +1,52 @@
+package com.achenging.view.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TabColorsTest {
+
+    private static final int RED         = 0xFFFF0000;
+    private static final int BLUE        = 0xFF0000FF;
+    private static final int TRANSPARENT = 0x00000000;
+
+    @Test
+    public void colorAt_wrapsAround() {
+        int[] colors = {RED, BLUE};
+
+        assertEquals(RED, TabColors.colorAt(colors, 0));
+        assertEquals(BLUE, TabColors.colorAt(colors, 1));
+        assertEquals(RED, TabColors.colorAt(colors, 4));
+    }
+
+    @Test
+    public void blendArgb_endpoints_areTheColors() {
+        assertEquals(RED, TabColors.blendArgb(RED, BLUE, 1f));
+        assertEquals(BLUE, TabColors.blendArgb(RED, BLUE, 0f));
+    }
+
+    @Test
+    public void blendArgb_halfway_isAnEvenBlend() {
+        assertEquals(0xFF800080, TabColors.blendArgb(RED, BLUE, 0.5f));
+    }
+
+    @Test
+    public void blendArgb_withTransparent_onlyFades() {
+        // Transparent black must not darken the color it fades into
+        int blend = TabColors.blendArgb(RED, TRANSPARENT, 0.5f);
+
+        assertEquals(0x80, blend >>> 24);
+        assertEquals(0xFF0000, blend & 0xFFFFFF);
+        assertEquals(0xFF0000, TabColors.blendArgb(TRANSPARENT, RED, 0.25f) & 0xFFFFFF);
+    }
+
+    @Test
+    public void blendArgb_bothTransparent_isTransparent() {
+        assertEquals(TRANSPARENT, TabColors.blendArgb(TRANSPARENT, 0x00FFFFFF, 0.5f));
+    }
+
+    @Test
+    public void blendColors_isOpaque() {
+        assertEquals(0xFF, TabColors.blendColors(0x80FF0000, 0x400000FF, 0.5f) >>> 24);
+    }
+}
@@ -0,0 +1,97 @@
+package com.achenging.view.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TabGeometryTest {
+
+    // Tabs at 0, 100 and 150, 300 wide in total
+    private static final int[] TAB_WIDTHS   = {100, 50, 150};
+    private static final int[] TITLE_WIDTHS = {60, 30, 100};
+    private static final int   INSET        = 1;
+
+    private final TabGeometry mGeometry = new TabGeometry();
+
+    @Before
+    public void setUp() {
+        mGeometry.setTabWidths(TAB_WIDTHS, TITLE_WIDTHS);
+        mGeometry.updateIndicatorEdges(INSET);
+    }
+
+    @Test
+    public void setTabWidths_laysTabsOutNextToEachOther() {
+        assertEquals(3, mGeometry.getTabCount());
+        assertEquals(0, mGeometry.getTabLeft(0));
+        assertEquals(100, mGeometry.getTabLeft(1));
+        assertEquals(150, mGeometry.getTabLeft(2));
+        assertEquals(300, mGeometry.getContentWidth());
+    }
+
+    @Test
+    public void findTabAt_beforeTheFirstTab_isTheFirstTab() {
+        assertEquals(0, mGeometry.findTabAt(-1));
+        assertEquals(0, mGeometry.findTabAt(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void findTabAt_boundary_isTheTabStartingThere() {
+        assertEquals(0, mGeometry.findTabAt(0));
+        assertEquals(0, mGeometry.findTabAt(99));
+        assertEquals(1, mGeometry.findTabAt(100));
+        assertEquals(1, mGeometry.findTabAt(149));
+        assertEquals(2, mGeometry.findTabAt(150));
+    }
+
+    @Test
+    public void findTabAt_atOrPastTheContentWidth_isTheLastTab() {
+        assertEquals(2, mGeometry.findTabAt(299));
+        assertEquals(2, mGeometry.findTabAt(300));
+        assertEquals(2, mGeometry.findTabAt(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void findTabAt_noTabs_isTheFirstPosition() {
+        mGeometry.setTabCount(0);
+
+        assertEquals(0, mGeometry.findTabAt(50));
+    }
+
+    @Test
+    public void interpolateIndicator_atZero_isUnderTheTab() {
+        assertTrue(mGeometry.interpolateIndicator(1, 0f));
+
+        // Centered under the title, shifted left by the inset
+        assertEquals(100 + (50 - 30) / 2 - INSET, mGeometry.getIndicatorLeft());
+        assertEquals(mGeometry.getIndicatorLeft() + 30, mGeometry.getIndicatorRight());
+    }
+
+    @Test
+    public void interpolateIndicator_atOne_isUnderTheTarget() {
+        assertTrue(mGeometry.interpolateIndicator(0, 2, 1f));
+        int left = mGeometry.getIndicatorLeft();
+        int right = mGeometry.getIndicatorRight();
+
+        mGeometry.interpolateIndicator(2, 0f);
+        assertEquals(mGeometry.getIndicatorLeft(), left);
+        assertEquals(mGeometry.getIndicatorRight(), right);
+    }
+
+    @Test
+    public void interpolateIndicator_pastTheLastTab_staysUnderIt() {
+        assertTrue(mGeometry.interpolateIndicator(2, 0.5f));
+
+        assertEquals(150 + (150 - 100) / 2 - INSET, mGeometry.getIndicatorLeft());
+    }
+
+    @Test
+    public void interpolateIndicator_noTab_clearsTheIndicator() {
+        mGeometry.interpolateIndicator(1, 0f);
+
+        assertFalse(mGeometry.interpolateIndicator(3, 0f));
+        assertFalse(mGeometry.interpolateIndicator(-1, 0f));
+        assertEquals(0, mGeometry.getIndicatorLeft());
+        assertEquals(0, mGeometry.getIndicatorRight());
+    }
+}
@@ -0,0 +1,66 @@
+package com.achenging.view.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TitleColorRampTest {
+
+    private static final int UNSELECTED = 0x99FFFFFF;
+    private static final int SELECTED   = 0xFFFFFFFF;
+
+    private final TitleColorRamp mRamp = new TitleColorRamp();
+
+    @Test
+    public void getColor_endpoints_areTheColorsWithoutARamp() {
+        assertEquals(UNSELECTED, mRamp.getColor(UNSELECTED, SELECTED, 0f));
+        assertEquals(SELECTED, mRamp.getColor(UNSELECTED, SELECTED, 1f));
+        // Clamped
+        assertEquals(UNSELECTED, mRamp.getColor(UNSELECTED, SELECTED, -0.5f));
+        assertEquals(SELECTED, mRamp.getColor(UNSELECTED, SELECTED, 1.5f));
+
+        assertEquals(-1, mRamp.findRamp(UNSELECTED, SELECTED));
+    }
+
+    @Test
+    public void getColor_betweenEndpoints_isTheNearestStep() {
+        float fraction = 0.4f;
+        float stepFraction = TitleColorRamp.getStep(fraction) / (float) TitleColorRamp.STEPS;
+
+        assertEquals(TabColors.blendArgb(SELECTED, UNSELECTED, stepFraction),
+                mRamp.getColor(UNSELECTED, SELECTED, fraction));
+    }
+
+    @Test
+    public void getColor_sameColors_reuseTheirRamp() {
+        mRamp.getColor(UNSELECTED, SELECTED, 0.5f);
+        int ramp = mRamp.findRamp(UNSELECTED, SELECTED);
+        for (int i = 1; i < TitleColorRamp.RAMPS; i++) {
+            mRamp.getColor(0xFF000000 | i, SELECTED, 0.5f);
+        }
+
+        mRamp.getColor(UNSELECTED, SELECTED, 0.25f);
+
+        assertTrue(ramp >= 0);
+        assertEquals(ramp, mRamp.findRamp(UNSELECTED, SELECTED));
+        for (int i = 1; i < TitleColorRamp.RAMPS; i++) {
+            assertTrue(mRamp.findRamp(0xFF000000 | i, SELECTED) >= 0);
+        }
+    }
+
+    @Test
+    public void getColor_morePairsThanRamps_evictsTheOldestRamp() {
+        for (int i = 0; i <= TitleColorRamp.RAMPS; i++) {
+            mRamp.getColor(0xFF000000 | i, SELECTED, 0.5f);
+        }
+
+        assertEquals(-1, mRamp.findRamp(0xFF000000, SELECTED));
+        for (int i = 1; i <= TitleColorRamp.RAMPS; i++) {
+            assertTrue(mRamp.findRamp(0xFF000000 | i, SELECTED) >= 0);
+        }
+        // An evicted pair is rebuilt with its own colors
+        assertEquals(TabColors.blendArgb(SELECTED, 0xFF000000, 0.5f),
+                mRamp.getColor(0xFF000000, SELECTED, 0.5f));
+        assertEquals(-1, mRamp.findRamp(0xFF000001, SELECTED));
+    }
+}
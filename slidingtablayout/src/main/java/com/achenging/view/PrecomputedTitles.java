@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 achenging
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.achenging.view;
+
+import android.content.res.Configuration;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.widget.TextView;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * The displayed text and the width of every tab title, transformed and measured on a background
+ * executor so that populating the strip does neither on the UI thread. Measuring the titles also
+ * fills the framework's text layout cache, so the tab views measure the same text from the cache.
+ * <p>
+ * The titles are worked out for title views like a given prototype: same paint, and shown in all
+ * caps if the prototype has a transformation, as the default tab views do. Such title views must
+ * be bound to {@link #getDisplayTitle(int, CharSequence)} with no transformation of their own.
+ */
+final class PrecomputedTitles {
+
+    interface Callback {
+        /**
+         * Called on the UI thread once every title has been worked out.
+         */
+        void onTitlesPrecomputed(PrecomputedTitles titles);
+    }
+
+    private final CharSequence[] mTitles;
+    private final CharSequence[] mDisplayTitles;
+    private final int[]          mTitleWidths;
+    private final TextPaint      mPaint;
+    private final float          mTextSize;
+    private final Typeface       mTypeface;
+    // Locale to upper case the titles in, or null to show them as they are
+    private final Locale         mAllCapsLocale;
+
+    private boolean mReady;
+
+    PrecomputedTitles(CharSequence[] titles, TextView prototype) {
+        mTitles = titles;
+        mDisplayTitles = new CharSequence[titles.length];
+        mTitleWidths = new int[titles.length];
+        // A copy, since the prototype's paint may change while the titles are measured
+        mPaint = new TextPaint(prototype.getPaint());
+        mTextSize = prototype.getTextSize();
+        mTypeface = prototype.getTypeface();
+        mAllCapsLocale = prototype.getTransformationMethod() != null
+                ? getPrimaryLocale(prototype.getContext().getResources().getConfiguration())
+                : null;
+    }
+
+    /**
+     * Work out the titles on {@code executor} and report them to {@code callback}.
+     */
+    void start(Executor executor, final Callback callback) {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < mTitles.length; i++) {
+                    CharSequence displayTitle = transform(mTitles[i]);
+                    mDisplayTitles[i] = displayTitle;
+                    mTitleWidths[i] = (int) mPaint.measureText(displayTitle, 0, displayTitle.length());
+                }
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mReady = true;
+                        callback.onTitlesPrecomputed(PrecomputedTitles.this);
+                    }
+                });
+            }
+        });
+    }
+
+    boolean isReady() {
+        return mReady;
+    }
+
+    /**
+     * @return the text to show for {@code title} at {@code position}; the precomputed one if the
+     * title has not changed since, otherwise it is transformed now.
+     */
+    CharSequence getDisplayTitle(int position, CharSequence title) {
+        if (mReady && position < mTitles.length && TextUtils.equals(mTitles[position], title)) {
+            return mDisplayTitles[position];
+        }
+        return transform(title);
+    }
+
+    /**
+     * @return the precomputed width of the title at {@code position}, or -1 if {@code titleView}
+     * does not show it exactly as it was measured.
+     */
+    int getTitleWidth(int position, TextView titleView) {
+        if (!mReady || position >= mTitles.length || titleView.getText() != mDisplayTitles[position]
+                || titleView.getTransformationMethod() != null) {
+            return -1;
+        }
+        if (titleView.getTextSize() != mTextSize || titleView.getTypeface() != mTypeface) {
+            return -1;
+        }
+        return mTitleWidths[position];
+    }
+
+    /**
+     * @return the width of {@code displayTitle}, the display title at {@code position};
+     * precomputed if it is the one that was worked out, otherwise it is measured now.
+     */
+    int getTitleWidth(int position, CharSequence displayTitle) {
+        if (mReady && position < mTitles.length && displayTitle == mDisplayTitles[position]) {
+            return mTitleWidths[position];
+        }
+        return (int) mPaint.measureText(displayTitle, 0, displayTitle.length());
+    }
+
+    /**
+     * @return the first locale of {@code configuration}, which text is shown in.
+     */
+    @SuppressWarnings("deprecation")
+    static Locale getPrimaryLocale(Configuration configuration) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return configuration.getLocales().get(0);
+        }
+        return configuration.locale;
+    }
+
+    private CharSequence transform(CharSequence title) {
+        if (title == null) {
+            return "";
+        }
+        return mAllCapsLocale != null ? title.toString().toUpperCase(mAllCapsLocale) : title;
+    }
+}
@@ -17,10 +17,20 @@
 package com.achenging.view;
 
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.content.res.Configuration;
+import android.database.DataSetObserver;
 import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.AsyncTask;
 import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.support.v4.view.AsyncLayoutInflater;
 import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
 import android.support.v7.widget.AppCompatTextView;
 import android.util.AttributeSet;
@@ -28,12 +38,21 @@ import android.util.Log;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.animation.AnimationUtils;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
 import android.widget.HorizontalScrollView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+
 
 /**
  * To be used with ViewPager to provide a tab indicator component which give constant feedback as to
@@ -80,6 +99,95 @@ public class SlidingTabLayout extends HorizontalScrollView {
 
     }
 
+    /**
+     * Notified once every tab of the strip has been added. Set with
+     * {@link #setOnTabsPopulatedListener(OnTabsPopulatedListener)}.
+     */
+    public interface OnTabsPopulatedListener {
+
+        void onTabsPopulated(SlidingTabLayout slidingTabLayout);
+
+    }
+
+    /**
+     * Receives timings and counters of the tab layout's work, e.g. to monitor its cost in
+     * production. Set with {@link #setMetricsListener(MetricsListener)}. Callbacks are made on the
+     * UI thread, in the middle of layout and drawing, so they should only record the values.
+     */
+    public interface MetricsListener {
+
+        /**
+         * Building or updating the tabs from the pager adapter.
+         */
+        int SPAN_POPULATE       = 0;
+        /**
+         * Drawing the tab strip, including the tab views.
+         */
+        int SPAN_DRAW           = 1;
+        /**
+         * Handling a page scroll: moving the indicator, recoloring titles and scrolling the strip.
+         */
+        int SPAN_PAGE_SCROLL    = 2;
+        /**
+         * Scrolling the strip to a tab. Also part of {@link #SPAN_PAGE_SCROLL}.
+         */
+        int SPAN_SCROLL_TO_TAB  = 3;
+
+        /**
+         * The tab strip, or a part of it, was invalidated.
+         */
+        int COUNT_INVALIDATION  = 0;
+        /**
+         * A new tab view was inflated or created, rather than reused.
+         */
+        int COUNT_TAB_INFLATION = 1;
+        /**
+         * A tab title was recolored.
+         */
+        int COUNT_RECOLOR       = 2;
+
+        /**
+         * @param span          one of the {@code SPAN_} constants
+         * @param durationNanos wall time spent in the span
+         */
+        void onSpan(int span, long durationNanos);
+
+        /**
+         * @param counter one of the {@code COUNT_} constants, which happened once more
+         */
+        void onCount(int counter);
+
+    }
+
+    /**
+     * Receives early hints of the tab the user is likely to select next, before the pager reports
+     * the selection, e.g. to start loading that page's content. Set with
+     * {@link #setOnSelectionPredictedListener(OnSelectionPredictedListener)}. A position is only
+     * reported again with a higher confidence, until the pager comes to rest.
+     */
+    public interface OnSelectionPredictedListener {
+
+        /**
+         * A finger went down on the tab; it may still turn into a scroll of the strip.
+         */
+        int CONFIDENCE_LOW    = 0;
+        /**
+         * The pager was dragged past the prediction threshold towards the page.
+         */
+        int CONFIDENCE_MEDIUM = 1;
+        /**
+         * The pager was released moving towards the page.
+         */
+        int CONFIDENCE_HIGH   = 2;
+
+        /**
+         * @param position   the position of the tab likely to be selected
+         * @param confidence one of the {@code CONFIDENCE_} constants
+         */
+        void onSelectionPredicted(int position, int confidence);
+
+    }
+
 
     private static final int TITLE_OFFSET_DIPS     = 24;
     private static final int TAB_VIEW_PADDING_DIPS = 14;
@@ -95,20 +203,143 @@ public class SlidingTabLayout extends HorizontalScrollView {
     private static final byte DEFAULT_DIVIDER_COLOR_ALPHA          = 0x20;
     public static final  int  DEFAULT_TEXT_PADDING                 = 10;
 
+    /**
+     * Indicator shape of a plain rectangle, the default.
+     */
+    public static final int INDICATOR_SHAPE_RECT    = 0;
+    /**
+     * Indicator shape of a rectangle with rounded corners.
+     */
+    public static final int INDICATOR_SHAPE_ROUNDED = 1;
+    /**
+     * Indicator shape of a rectangle with fully rounded ends.
+     */
+    public static final int INDICATOR_SHAPE_PILL    = 2;
+
+    private static final float DEFAULT_PREDICTION_THRESHOLD = 0.3f;
+
+    private static final ViewPager.OnPageChangeListener[] NO_PAGE_CHANGE_LISTENERS =
+            new ViewPager.OnPageChangeListener[0];
+
+    // Tabs added per frame when populating asynchronously
+    private static final int ASYNC_TABS_PER_FRAME = 4;
+
     private int mTitleOffset;
 
-    private int mTabViewLayoutId;
-    private int mTabViewTextViewId;
+    private int    mTabViewLayoutId;
+    private int    mTabViewTextViewId;
+    // What new tab views are created from, as recorded on them for the tab view pool
+    private Object mTabViewOrigin = getClass();
 
     private int     mTabSelectedTextColor;
     private int     mTabTextColor;
     private int     mTextPadding;
-    private boolean mAvgSplit;
 
-    private ViewPager                      mViewPager;
-    private ViewPager.OnPageChangeListener mViewPagerPageChangeListener;
+    private final TabStyleCache mStyleCache;
+    private       TabViewPool   mTabViewPool;
+
+    private boolean mVirtualized;
+    private boolean mFlatTabs;
+    private boolean mDirectTabJumps;
+    private int[]   mVirtualTitleWidths;
+    private int     mVirtualTabHeight;
+    private boolean mAsyncPopulation;
+    private boolean mSmoothTitleColors;
+    private boolean mFrameCoalescing;
+
+    private AsyncLayoutInflater     mAsyncLayoutInflater;
+    private int                     mPendingInflations;
+    private int                     mPopulatedTabCount = -1;
+    private boolean                 mPopulateScheduled;
+    private OnTabsPopulatedListener mOnTabsPopulatedListener;
+
+    private Executor          mTitleExecutor;
+    private PrecomputedTitles mPrecomputedTitles;
+    private TextView          mDefaultTabPrototype;
+
+    private TabMetrics mMetrics;
+
+    private OnSelectionPredictedListener mOnSelectionPredictedListener;
+    private float                        mPredictionThreshold = DEFAULT_PREDICTION_THRESHOLD;
+    private int                          mPredictedPosition   = -1;
+    private int                          mPredictedConfidence = -1;
+
+    private ViewPager                        mViewPager;
+    // Copied on every change, so that dispatching a page event needs neither a lock nor an iterator
+    private ViewPager.OnPageChangeListener[] mPageChangeListeners = NO_PAGE_CHANGE_LISTENERS;
+    // The listener set through setOnPageChangeListener, one of mPageChangeListeners
+    private ViewPager.OnPageChangeListener   mViewPagerPageChangeListener;
+    private PagerAdapter                     mPagerAdapter;
+    private CharSequence[]                   mTabTitles = new CharSequence[0];
+
+    // Position of the tab whose title currently shows the selected color
+    private int mHighlightedPosition = -1;
+    // First position of the tab pair whose title colors are being blended
+    private int mBlendPosition       = -1;
+
+    // Measurements of the tabs before a configuration change, for the next population to reuse
+    private SavedState mRestoredState;
+    // Text style of the title views, noted from the first one bound after the tab views changed
+    private String     mTitleStyle;
+    // Title style of restored measurements in use, until it can be compared with the current one
+    private String     mRestoredTitleStyle;
+    // Scroll to apply once laid out, as the strip cannot be scrolled before; -1 for none
+    private int        mPendingScrollPosition = -1;
+    // Restored scroll offset for the pending position, or -1 to scroll to its tab
+    private int        mPendingScrollX        = -1;
 
     private final SlidingTabStrip mTabStrip;
+    private final TabClickListener mTabClickListener = new TabClickListener();
+    private final InternalViewPagerListener mPageChangeListener = new InternalViewPagerListener();
+    private final TabJump          mTabJump = new TabJump();
+    private final BadgeUpdates     mBadgeUpdates = new BadgeUpdates();
+    private final DataSetObserver  mPagerAdapterObserver = new PagerAdapterObserver();
+
+    private final Runnable mPopulateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mPopulateScheduled = false;
+            final TabMetrics metrics = mMetrics;
+            final long start = metrics != null ? metrics.beginSpan(MetricsListener.SPAN_POPULATE) : 0;
+            populateTabBatch();
+            if (metrics != null) {
+                metrics.endSpan(MetricsListener.SPAN_POPULATE, start);
+            }
+        }
+    };
+
+    private final AsyncLayoutInflater.OnInflateFinishedListener mInflateFinishedListener
+            = new AsyncLayoutInflater.OnInflateFinishedListener() {
+        @Override
+        public void onInflateFinished(View view, int resid, ViewGroup parent) {
+            mPendingInflations--;
+            if (resid != mTabViewLayoutId) {
+                return;
+            }
+            if (mMetrics != null) {
+                mMetrics.count(MetricsListener.COUNT_TAB_INFLATION);
+            }
+            view.setOnClickListener(mTabClickListener);
+            TabViewPool.setOrigin(view, mTabViewOrigin);
+            mTabStrip.addScrapView(view);
+            if (mPopulatedTabCount >= 0) {
+                schedulePopulateTabBatch();
+            }
+        }
+    };
+
+    private final PrecomputedTitles.Callback mTitlesPrecomputedCallback
+            = new PrecomputedTitles.Callback() {
+        @Override
+        public void onTitlesPrecomputed(PrecomputedTitles titles) {
+            if (titles != mPrecomputedTitles || mViewPager == null) {
+                // Replaced by another pager in the meantime
+                return;
+            }
+            mTabStrip.setPrecomputedTitles(titles);
+            populateTabStrip();
+        }
+    };
 
     public SlidingTabLayout(Context context) {
         this(context, null);
@@ -129,31 +360,33 @@ public class SlidingTabLayout extends HorizontalScrollView {
         setHorizontalScrollBarEnabled(true);
         // Make sure that the Tab Strips fills this View
         setFillViewport(true);
-        //获取颜色
-        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.SlidingTabLayout);
+        //获取颜色，同一主题与属性只解析一次
+        mStyleCache = TabStyleCache.get(context);
+        TabStyleCache.LayoutStyle style = mStyleCache.getLayoutStyle(context, attrs,
+                SELECTED_INDICATOR_THICKNESS_DIPS, DEFAULT_SELECTED_INDICATOR_COLOR,
+                DEFAULT_DIVIDER_THICKNESS_DIPS, DEFAULT_BOTTOM_BORDER_THICKNESS_DIPS,
+                defaultBackgroundColor);
 
         //选中与未选中的颜色
-        mTabSelectedTextColor = typedArray.getColor(R.styleable.SlidingTabLayout_tabSelectedTextColor, 0);
-        mTabTextColor = typedArray.getColor(R.styleable.SlidingTabLayout_tabTextColor, 0);
+        mTabSelectedTextColor = style.selectedTextColor;
+        mTabTextColor = style.textColor;
 
         //选中下划线的粗细
-        int selectedIndicatorThickness = (int) typedArray.getDimension(R.styleable.SlidingTabLayout_tabIndicatorThickness, SELECTED_INDICATOR_THICKNESS_DIPS);
+        int selectedIndicatorThickness = style.indicatorThickness;
         //选中的下划线的颜色
-        int tabIndicatorColor = typedArray.getColor(R.styleable.SlidingTabLayout_tabIndicatorColor, DEFAULT_SELECTED_INDICATOR_COLOR);
+        int tabIndicatorColor = style.indicatorColor;
 
         //tab之间的中间分割线的粗细
-        int tabDividerThickness = (int) typedArray.getDimension(R.styleable.SlidingTabLayout_dividerThickness, DEFAULT_DIVIDER_THICKNESS_DIPS);
+        int tabDividerThickness = style.dividerThickness;
         //tab之间的中间分割线颜色
-        int tabDividerColor = typedArray.getColor(R.styleable.SlidingTabLayout_dividerColor, defaultBackgroundColor);
+        int tabDividerColor = style.dividerColor;
 
         //tab底部的下划线的背景后面的粗细与颜色
-        int tabBottomBorderThickness = (int) typedArray.getDimension(R.styleable.SlidingTabLayout_bottomBorderThickness, DEFAULT_BOTTOM_BORDER_THICKNESS_DIPS);
-        int tabBottomBorderColor = typedArray.getColor(R.styleable.SlidingTabLayout_bottomBorderColor, defaultBackgroundColor);
+        int tabBottomBorderThickness = style.bottomBorderThickness;
+        int tabBottomBorderColor = style.bottomBorderColor;
 
         //是否显示tab中间的分割线，这里默认不显示
-        boolean showAsDivider = typedArray.getBoolean(R.styleable.SlidingTabLayout_showAsDivider, false);
-
-        typedArray.recycle();
+        boolean showAsDivider = style.showAsDivider;
         //
 
 
@@ -178,6 +411,7 @@ public class SlidingTabLayout extends HorizontalScrollView {
         LinearLayout.LayoutParams params
                 = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
         params.gravity = Gravity.CENTER;
+        mTabStrip.setOnTabClickListener(mTabClickListener);
         addView(mTabStrip);
     }
 
@@ -209,6 +443,65 @@ public class SlidingTabLayout extends HorizontalScrollView {
     }
 
 
+    /**
+     * Only redraw the indicator band while the pager is scrolling, instead of the whole tab strip.
+     */
+    public void setIndicatorOnlyInvalidation(boolean indicatorOnlyInvalidation) {
+        mTabStrip.setIndicatorOnlyInvalidation(indicatorOnlyInvalidation);
+    }
+
+    /**
+     * When enabled, page scroll callbacks only record the latest position and offset, and the
+     * strip scroll, indicator move and recoloring are applied once per frame. This saves work when
+     * several callbacks arrive within one frame, e.g. during fast flings.
+     */
+    public void setFrameCoalescing(boolean frameCoalescing) {
+        mFrameCoalescing = frameCoalescing;
+    }
+
+    /**
+     * Draw the indicator as its own layer that is moved with view properties, so that page scrolls
+     * do not redraw the tab strip. Only available from API 18, and only used while the indicator
+     * is a plain rectangle without a gradient.
+     */
+    public void setIndicatorLayer(boolean indicatorLayer) {
+        mTabStrip.setIndicatorLayer(indicatorLayer);
+    }
+
+    /**
+     * Set the shape of the indicator, one of {@link #INDICATOR_SHAPE_RECT},
+     * {@link #INDICATOR_SHAPE_ROUNDED} or {@link #INDICATOR_SHAPE_PILL}. Rounded indicators get a
+     * corner radius of half the indicator thickness.
+     */
+    public void setIndicatorShape(int shape) {
+        setIndicatorShape(shape, -1);
+    }
+
+    /**
+     * Set the shape of the indicator, and the corner radius in pixels of
+     * {@link #INDICATOR_SHAPE_ROUNDED} indicators, or -1 for half the indicator thickness.
+     */
+    public void setIndicatorShape(int shape, int cornerRadius) {
+        if (shape != INDICATOR_SHAPE_RECT && shape != INDICATOR_SHAPE_ROUNDED
+                && shape != INDICATOR_SHAPE_PILL) {
+            throw new IllegalArgumentException("Unknown indicator shape " + shape);
+        }
+        mTabStrip.setIndicatorShape(shape, cornerRadius);
+    }
+
+    /**
+     * Fill the indicator with a horizontal gradient through {@code colors}, from its left edge to
+     * its right one, instead of the selected indicator colors. The gradient is created once and
+     * stretched over the indicator as it moves. Pass no colors to go back to the selected
+     * indicator colors.
+     */
+    public void setIndicatorGradient(int... colors) {
+        if (colors != null && colors.length == 1) {
+            throw new IllegalArgumentException("A gradient needs at least two colors");
+        }
+        mTabStrip.setIndicatorGradient(colors != null && colors.length > 0 ? colors : null);
+    }
+
     /**
      * Set the custom {@link TabColorizer} to be used.
      * If you only require simple custmisation then you can use
@@ -217,6 +510,16 @@ public class SlidingTabLayout extends HorizontalScrollView {
      */
     public void setCustomTabColorizer(TabColorizer tabColorizer) {
         mTabStrip.setCustomTabColorizer(tabColorizer);
+        refreshTabColors();
+    }
+
+    /**
+     * When enabled, the title colors of the two tabs involved in a page scroll crossfade with the
+     * scroll offset, using the colors of the {@link TabColorizer}. Otherwise the selected color
+     * switches over at the halfway point.
+     */
+    public void setSmoothTitleColors(boolean smoothTitleColors) {
+        mSmoothTitleColors = smoothTitleColors;
     }
 
     /**
@@ -236,53 +539,349 @@ public class SlidingTabLayout extends HorizontalScrollView {
     }
 
     /**
-     * Set the {@link ViewPager.OnPageChangeListener}. When using {@link SlidingTabLayout} you are
-     * required to set any {@link ViewPager.OnPageChangeListener} through this method. This is so
-     * that the layout can update it's scroll position correctly.
+     * Set the {@link ViewPager.OnPageChangeListener}, replacing the one previously set through this
+     * method. Listeners added with {@link #addOnPageChangeListener(ViewPager.OnPageChangeListener)}
+     * are kept.
      *
-     * @see ViewPager#setOnPageChangeListener(ViewPager.OnPageChangeListener)
+     * @deprecated Use {@link #addOnPageChangeListener(ViewPager.OnPageChangeListener)} and
+     * {@link #removeOnPageChangeListener(ViewPager.OnPageChangeListener)} instead.
      */
+    @Deprecated
     public void setOnPageChangeListener(ViewPager.OnPageChangeListener listener) {
+        if (mViewPagerPageChangeListener != null) {
+            removeOnPageChangeListener(mViewPagerPageChangeListener);
+        }
         mViewPagerPageChangeListener = listener;
+        if (listener != null) {
+            addOnPageChangeListener(listener);
+        }
+    }
+
+    /**
+     * Add a listener for the page events of the pager. The events reach the listeners after the
+     * tabs have been updated, in the order the listeners were added. Listeners added to the pager
+     * itself also keep receiving them, since the layout does not replace them.
+     */
+    public void addOnPageChangeListener(ViewPager.OnPageChangeListener listener) {
+        final int count = mPageChangeListeners.length;
+        ViewPager.OnPageChangeListener[] listeners = new ViewPager.OnPageChangeListener[count + 1];
+        System.arraycopy(mPageChangeListeners, 0, listeners, 0, count);
+        listeners[count] = listener;
+        mPageChangeListeners = listeners;
+    }
+
+    /**
+     * Remove a listener added with {@link #addOnPageChangeListener(ViewPager.OnPageChangeListener)}.
+     */
+    public void removeOnPageChangeListener(ViewPager.OnPageChangeListener listener) {
+        final int count = mPageChangeListeners.length;
+        for (int i = 0; i < count; i++) {
+            if (mPageChangeListeners[i] == listener) {
+                if (count == 1) {
+                    mPageChangeListeners = NO_PAGE_CHANGE_LISTENERS;
+                } else {
+                    ViewPager.OnPageChangeListener[] listeners =
+                            new ViewPager.OnPageChangeListener[count - 1];
+                    System.arraycopy(mPageChangeListeners, 0, listeners, 0, i);
+                    System.arraycopy(mPageChangeListeners, i + 1, listeners, i, count - i - 1);
+                    mPageChangeListeners = listeners;
+                }
+                if (listener == mViewPagerPageChangeListener) {
+                    mViewPagerPageChangeListener = null;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove every page change listener of the layout.
+     */
+    public void clearOnPageChangeListeners() {
+        mPageChangeListeners = NO_PAGE_CHANGE_LISTENERS;
+        mViewPagerPageChangeListener = null;
     }
 
     /**
-     * Set the custom layout to be inflated for the tab views.
+     * Set the custom layout to be inflated for the tab views. Tabs already shown are created again
+     * from the new layout.
      *
      * @param layoutResId Layout id to be inflated
      * @param textViewId  id of the {@link TextView} in the inflated view
      */
     public void setCustomTabView(int layoutResId, int textViewId) {
+        if (layoutResId == mTabViewLayoutId && textViewId == mTabViewTextViewId) {
+            return;
+        }
+        // The tab views of the previous layout go first, as they have no title view of the new id
+        final ViewPager viewPager = mViewPager;
+        if (viewPager != null) {
+            setViewPager(null);
+        }
         mTabViewLayoutId = layoutResId;
         mTabViewTextViewId = textViewId;
+        mTabViewOrigin = layoutResId != 0 ? (Object) layoutResId : getClass();
+        mTabStrip.setTitleViewId(textViewId);
+        mTabStrip.clearScrapViews();
+        mTitleStyle = null;
+        if (viewPager != null) {
+            setViewPager(viewPager);
+        }
+    }
+
+    /**
+     * When enabled, custom tab views are inflated on a background thread and tabs are added to the
+     * strip a few per frame instead of all at once. Use
+     * {@link #setOnTabsPopulatedListener(OnTabsPopulatedListener)} to find out when the strip is
+     * complete. Must be called before {@link #setViewPager(ViewPager)}.
+     */
+    public void setAsyncPopulation(boolean asyncPopulation) {
+        mAsyncPopulation = asyncPopulation;
+    }
+
+    /**
+     * Share tab views with other tab layouts through {@code pool}, e.g. between the rows of a
+     * list: when the tab layout is bound to another pager its tab views go to the pool, and new
+     * tabs take their views from it before creating any.
+     */
+    public void setTabViewPool(TabViewPool pool) {
+        mTabViewPool = pool;
+    }
+
+    public void setOnTabsPopulatedListener(OnTabsPopulatedListener listener) {
+        mOnTabsPopulatedListener = listener;
+    }
+
+    /**
+     * Report the time spent populating, drawing and scrolling the tabs, and counts of
+     * invalidations, tab inflations and recolorings, to {@code listener}. While a listener is
+     * installed the same spans are also marked as trace sections, for systrace. Without one the
+     * tab layout does not time or count anything, so this can stay in release builds.
+     */
+    public void setMetricsListener(MetricsListener listener) {
+        mMetrics = listener != null ? new TabMetrics(listener) : null;
+        mTabStrip.setMetrics(mMetrics);
+    }
+
+    /**
+     * Report the tab the user is likely to select next to {@code listener}, a few frames before
+     * the selection: when a finger goes down on a tab, when a drag of the pager passes the
+     * {@link #setPredictionThreshold(float) prediction threshold}, and when a drag is released
+     * towards a page.
+     */
+    public void setOnSelectionPredictedListener(OnSelectionPredictedListener listener) {
+        mOnSelectionPredictedListener = listener;
+    }
+
+    /**
+     * Set the fraction of a page, 0.3 by default, the pager must be dragged towards a neighboring
+     * page before it is reported as likely to be selected.
+     */
+    public void setPredictionThreshold(float predictionThreshold) {
+        mPredictionThreshold = predictionThreshold;
+    }
+
+    /**
+     * Inflate {@code count} custom tab views on a background thread ahead of
+     * {@link #setViewPager(ViewPager)}, so that populating the strip can reuse them instead of
+     * inflating on the UI thread. Has no effect before {@link #setCustomTabView(int, int)}.
+     */
+    public void prewarmTabViews(int count) {
+        if (mTabViewLayoutId == 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            inflateTabViewAsync();
+        }
+    }
+
+    private void inflateTabViewAsync() {
+        if (mAsyncLayoutInflater == null) {
+            mAsyncLayoutInflater = new AsyncLayoutInflater(getContext());
+        }
+        mPendingInflations++;
+        mAsyncLayoutInflater.inflate(mTabViewLayoutId, mTabStrip, mInflateFinishedListener);
+    }
+
+    /**
+     * Upper case and measure the titles of the default tab views on {@code executor}, e.g.
+     * {@link AsyncTask#THREAD_POOL_EXECUTOR}, instead of on the UI thread while the tabs are
+     * measured. {@link #setViewPager(ViewPager)} then populates the strip once the titles are
+     * ready, and the tabs measure from the text cache. Pass null, the default, to work the titles
+     * out on the UI thread. Has no effect with {@link #setCustomTabView(int, int)}, and must be
+     * called before {@link #setViewPager(ViewPager)}.
+     */
+    public void setTitleExecutor(Executor executor) {
+        mTitleExecutor = executor;
+    }
+
+    /**
+     * Only keep the tab views around the visible part of the strip, recycling and rebinding them
+     * as the strip scrolls. Use this for adapters with a very large number of pages. Must be
+     * called before {@link #setViewPager(ViewPager)}.
+     */
+    public void setVirtualized(boolean virtualized) {
+        mVirtualized = virtualized;
+        mTabStrip.setVirtualized(virtualized, virtualized ? new InternalTabViewBinder() : null);
+    }
+
+    /**
+     * Draw the titles of the default tab views in the strip itself instead of using a view per
+     * tab, so that the strip stays a single view however many pages there are. Clicks are
+     * hit-tested against the tab edges; the tabs have no pressed state in this mode, and reach
+     * accessibility services as virtual views of the strip. Takes
+     * precedence over {@link #setVirtualized(boolean)}, has no effect with
+     * {@link #setCustomTabView(int, int)}, and must be called before
+     * {@link #setViewPager(ViewPager)}.
+     */
+    public void setFlatTabs(boolean flatTabs) {
+        mFlatTabs = flatTabs;
+    }
+
+    /**
+     * Show {@code count} in a badge on the tab at {@code position}, or remove its badge if
+     * {@code count} is 0. Counts above 99 show as "99+".
+     * <p>
+     * Badges may be updated any number of times per frame: the updates are applied once, on the
+     * next frame, and redraw only the tabs whose badge changed, without laying out the strip.
+     * Badges stay with their position when the tabs are populated again, and move with their
+     * title when the adapter changes. Positions past the last tab are ignored, and all badges are
+     * removed when a different pager is bound.
+     */
+    public void setBadgeCount(int position, int count) {
+        mBadgeUpdates.set(position, Math.max(count, SlidingTabStrip.BADGE_NONE));
+    }
+
+    /**
+     * Show a dot with no count in a badge on the tab at {@code position}.
+     *
+     * @see #setBadgeCount(int, int)
+     */
+    public void setBadgeDot(int position) {
+        mBadgeUpdates.set(position, SlidingTabStrip.BADGE_DOT);
+    }
+
+    /**
+     * Remove the badge of the tab at {@code position}.
+     *
+     * @see #setBadgeCount(int, int)
+     */
+    public void clearBadge(int position) {
+        mBadgeUpdates.set(position, SlidingTabStrip.BADGE_NONE);
+    }
+
+    /**
+     * Set the color of the badges and of the counts in them.
+     */
+    public void setBadgeColors(int backgroundColor, int textColor) {
+        mTabStrip.setBadgeColors(backgroundColor, textColor);
+    }
+
+    /**
+     * When a tab more than one page away from the current one is clicked, move the indicator and
+     * scroll the strip straight to it in one short animation, instead of following the pager
+     * through every page in between. The pager's scroll callbacks are ignored by the tabs until
+     * it settles, but still reach the
+     * {@link #addOnPageChangeListener(ViewPager.OnPageChangeListener) page change listeners}.
+     */
+    public void setDirectTabJumps(boolean directTabJumps) {
+        mDirectTabJumps = directTabJumps;
+        if (!directTabJumps) {
+            mTabJump.cancel();
+        }
+    }
+
+    private boolean usesFlatTabs() {
+        return mFlatTabs && mTabViewLayoutId == 0;
     }
 
     public void setSelectedTitleColors(int... colors) {
         mTabStrip.setSelectedTitleColors(colors);
+        refreshTabColors();
     }
 
     public void setUnSelectedTitleColors(int... colors) {
         mTabStrip.setUnselectedTitleColors(colors);
+        refreshTabColors();
+    }
+
+    private void refreshTabColors() {
+        if (mViewPager != null) {
+            updateTabColors(mHighlightedPosition);
+        }
     }
 
     /**
-     * Sets the associated view pager. Note that the assumption here is that the pager content
-     * (number of tabs and tab titles) does not change after this call has been made.
+     * Sets the associated view pager. Changes to the pager content reported through
+     * {@link PagerAdapter#notifyDataSetChanged()} are applied to the tabs incrementally.
      */
     public void setViewPager(ViewPager viewPager) {
-        mTabStrip.removeAllViews();
+        mTabJump.cancel();
+        if (viewPager != mViewPager) {
+            // The badges are for the pages of the other pager
+            mBadgeUpdates.clear();
+            mTabStrip.clearBadges();
+            mTabTitles = new CharSequence[0];
+        }
+        mPopulatedTabCount = -1;
+        if (mTabViewPool != null) {
+            mTabStrip.removeAllTabs(mTabViewPool);
+        } else {
+            mTabStrip.removeAllTabs();
+        }
+        mPrecomputedTitles = null;
+        mTabStrip.setPrecomputedTitles(null);
+        if (mViewPager != null) {
+            mViewPager.removeOnPageChangeListener(mPageChangeListener);
+        }
+        if (mPagerAdapter != null) {
+            mPagerAdapter.unregisterDataSetObserver(mPagerAdapterObserver);
+            mPagerAdapter = null;
+        }
         mViewPager = viewPager;
         if (viewPager != null) {
-            viewPager.setOnPageChangeListener(new InternalViewPagerListener());
-            populateTabStrip();
+            // Added rather than set, so that listeners already on the pager keep receiving events
+            viewPager.addOnPageChangeListener(mPageChangeListener);
+            mPagerAdapter = viewPager.getAdapter();
+            mPagerAdapter.registerDataSetObserver(mPagerAdapterObserver);
+            if (mTitleExecutor != null && mTabViewLayoutId == 0) {
+                precomputeTitles();
+            } else {
+                populateTabStrip();
+            }
         }
     }
 
+    /**
+     * Work out the titles of the default tab views in the background.
+     */
+    private void precomputeTitles() {
+        // Known before the tabs are populated, for the badges set in the meantime
+        mTabTitles = getPageTitles(mPagerAdapter);
+        mPrecomputedTitles = new PrecomputedTitles(mTabTitles, getDefaultTabPrototype());
+        mPrecomputedTitles.start(mTitleExecutor, mTitlesPrecomputedCallback);
+    }
+
+    /**
+     * Sets the associated view pager, and whether the tabs split the width of the layout evenly.
+     *
+     * @see #setEvenSplit(boolean)
+     */
     public void setViewPager(ViewPager viewPager, boolean avgSplit) {
-        mAvgSplit = avgSplit;
+        setEvenSplit(avgSplit);
         setViewPager(viewPager);
     }
 
+    /**
+     * When enabled, the tabs share the width of the layout equally instead of wrapping their
+     * titles, whatever tab views are used. The widths follow the layout's own width, e.g. after a
+     * rotation or in multi-window, and are computed in the strip's single measure pass. Not
+     * available while {@link #setVirtualized(boolean) virtualized}.
+     */
+    public void setEvenSplit(boolean evenSplit) {
+        mTabStrip.setEvenSplit(evenSplit);
+    }
+
     /**
      * Create a default view to be used for tabs. This is called if a custom tab view is not set via
      * {@link #setCustomTabView(int, int)}.
@@ -294,18 +893,11 @@ public class SlidingTabLayout extends HorizontalScrollView {
         textView.setPadding(mTextPadding, mTextPadding, mTextPadding, mTextPadding);
         textView.setTextSize(TypedValue.COMPLEX_UNIT_SP, TAB_VIEW_TEXT_SIZE_SP);
 
-        if (mAvgSplit) {
-            int screenWidth = getResources().getDisplayMetrics().widthPixels;
-            textView.setWidth(screenWidth / mViewPager.getAdapter().getCount());
-        }
-
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
             // If we're running on Honeycomb or newer, then we can use the Theme's
-            // selectableItemBackground to ensure that the View has a pressed state
-            TypedValue outValue = new TypedValue();
-            getContext().getTheme().resolveAttribute(android.R.attr.selectableItemBackground,
-                    outValue, true);
-            textView.setBackgroundResource(outValue.resourceId);
+            // selectableItemBackground to ensure that the View has a pressed state, resolved once
+            // per theme
+            textView.setBackgroundResource(mStyleCache.getSelectableItemBackground());
         }
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
@@ -318,67 +910,629 @@ public class SlidingTabLayout extends HorizontalScrollView {
     }
 
     private void populateTabStrip() {
-        final PagerAdapter adapter = mViewPager.getAdapter();
-        final OnClickListener tabClickListener = new TabClickListener();
-
-        for (int i = 0; i < adapter.getCount(); i++) {
-            View tabView = null;
-            TextView tabTitleView = null;
+        final TabMetrics metrics = mMetrics;
+        final long start = metrics != null ? metrics.beginSpan(MetricsListener.SPAN_POPULATE) : 0;
+        populateTabs();
+        if (metrics != null) {
+            metrics.endSpan(MetricsListener.SPAN_POPULATE, start);
+        }
+    }
 
-            if (mTabViewLayoutId != 0) {
-                // If there is a custom tab view layout id set, try and inflate it
-                tabView = LayoutInflater.from(getContext()).inflate(mTabViewLayoutId, mTabStrip,
-                        false);
-                tabTitleView = (TextView) tabView.findViewById(mTabViewTextViewId);
-            }
+    private void populateTabs() {
+        mTabTitles = getPageTitles(mViewPager.getAdapter());
+        mHighlightedPosition = mViewPager.getCurrentItem();
+        if (usesFlatTabs()) {
+            measureFlatTabs();
+            mRestoredState = null;
+            updateTabColors(mHighlightedPosition);
+            dispatchTabsPopulated();
+            return;
+        }
+        if (mVirtualized) {
+            mTabStrip.setVirtualTabs(measureVirtualTabs(null), mVirtualTitleWidths, mVirtualTabHeight);
+            mRestoredState = null;
+            dispatchTabsPopulated();
+            return;
+        }
 
-            if (tabView == null) {
-                tabView = createDefaultTabView(getContext());
-            }
+        mRestoredState = null;
+        mPopulatedTabCount = 0;
+        if (!mAsyncPopulation) {
+            populateRemainingTabs();
+            return;
+        }
 
-            if (tabTitleView == null && TextView.class.isInstance(tabView)) {
-                tabTitleView = (TextView) tabView;
+        if (mTabViewLayoutId != 0) {
+            int missing = mTabTitles.length - mPendingInflations - mTabStrip.getScrapViewCount();
+            if (mTabViewPool != null) {
+                missing -= mTabViewPool.getRecycledViewCount(mTabViewLayoutId);
             }
-
-            tabTitleView.setText(adapter.getPageTitle(i));
-            tabView.setOnClickListener(tabClickListener);
-            if (i == mViewPager.getCurrentItem()) {
-                tabTitleView.setTextColor(mTabSelectedTextColor);
-            } else {
-                tabTitleView.setTextColor(mTabTextColor);
+            for (int i = 0; i < missing; i++) {
+                inflateTabViewAsync();
             }
-            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
-                    ViewGroup.LayoutParams.MATCH_PARENT);
-            mTabStrip.addView(tabView, params);
         }
+        schedulePopulateTabBatch();
     }
 
-    @Override
-    protected void onAttachedToWindow() {
-        super.onAttachedToWindow();
-
-        if (mViewPager != null) {
-            scrollToTab(mViewPager.getCurrentItem(), 0);
+    private void schedulePopulateTabBatch() {
+        if (!mPopulateScheduled) {
+            mPopulateScheduled = true;
+            ViewCompat.postOnAnimation(this, mPopulateRunnable);
         }
     }
 
-    private void scrollToTab(int tabIndex, int positionOffset) {
-        final int tabStripChildCount = mTabStrip.getChildCount();
-        if (tabStripChildCount == 0 || tabIndex < 0 || tabIndex >= tabStripChildCount) {
+    /**
+     * Add the next few tabs to the strip, preferring views inflated in the background. When a
+     * custom tab view is still being inflated, wait for it rather than inflating on this thread.
+     */
+    private void populateTabBatch() {
+        if (mPopulatedTabCount < 0) {
             return;
         }
 
-        View selectedChild = mTabStrip.getChildAt(tabIndex);
+        final int end = Math.min(mTabTitles.length, mPopulatedTabCount + ASYNC_TABS_PER_FRAME);
+        while (mPopulatedTabCount < end) {
+            View tabView = mTabStrip.takeScrapView();
+            if (tabView == null) {
+                if (mPendingInflations > 0) {
+                    return;
+                }
+                tabView = createTabView();
+            }
+            addPopulatedTab(tabView);
+        }
 
+        if (mPopulatedTabCount < mTabTitles.length) {
+            schedulePopulateTabBatch();
+        } else {
+            finishPopulation();
+        }
+    }
+
+    private void populateRemainingTabs() {
+        while (mPopulatedTabCount >= 0 && mPopulatedTabCount < mTabTitles.length) {
+            addPopulatedTab(createTabView());
+        }
+        finishPopulation();
+    }
+
+    private void addPopulatedTab(View tabView) {
+        final int position = mPopulatedTabCount++;
+        bindTabView(tabView, position);
+        mTabStrip.addView(tabView, new SlidingTabStrip.TabLayoutParams(position));
+    }
+
+    private void finishPopulation() {
+        if (mPopulatedTabCount < 0) {
+            return;
+        }
+        mPopulatedTabCount = -1;
+        dispatchTabsPopulated();
+    }
+
+    private void dispatchTabsPopulated() {
+        if (mOnTabsPopulatedListener != null) {
+            mOnTabsPopulatedListener.onTabsPopulated(this);
+        }
+    }
+
+    /**
+     * Bring the tabs in line with the adapter after a data set change. Tabs whose title is still
+     * present are kept (and moved if needed), tabs that were removed are rebound to new titles, and
+     * only the remaining new titles get a new view.
+     */
+    private void updateTabStrip() {
+        final TabMetrics metrics = mMetrics;
+        final long start = metrics != null ? metrics.beginSpan(MetricsListener.SPAN_POPULATE) : 0;
+        updateTabs();
+        if (metrics != null) {
+            metrics.endSpan(MetricsListener.SPAN_POPULATE, start);
+        }
+    }
+
+    private void updateTabs() {
+        // Finish an asynchronous population first so that the diff sees every tab
+        populateRemainingTabs();
+
+        final CharSequence[] titles = getPageTitles(mViewPager.getAdapter());
+        final int[] oldPositions = matchTitles(mTabTitles, titles);
+        // Pending badge updates are for the old positions
+        mBadgeUpdates.apply();
+        mTabTitles = titles;
+        mTabStrip.moveBadges(oldPositions);
+
+        if (usesFlatTabs()) {
+            measureFlatTabs();
+        } else if (mVirtualized) {
+            mTabStrip.setVirtualTabs(measureVirtualTabs(oldPositions), mVirtualTitleWidths,
+                    mVirtualTabHeight);
+        } else {
+            updateTabViews(oldPositions);
+        }
+
+        final int selectedPosition = mViewPager.getCurrentItem();
+        mTabStrip.onViewPagerPageChanged(selectedPosition, 0f);
+        updateTabColors(selectedPosition);
+    }
+
+    private void updateTabViews(int[] oldPositions) {
+        final int oldCount = mTabStrip.getChildCount();
+        final View[] oldViews = new View[oldCount];
+        final boolean[] reused = new boolean[oldCount];
+        for (int i = 0; i < oldCount; i++) {
+            oldViews[i] = mTabStrip.getChildAt(i);
+        }
+
+        final View[] tabViews = new View[oldPositions.length];
+        for (int i = 0; i < tabViews.length; i++) {
+            int oldPosition = oldPositions[i];
+            if (oldPosition >= 0 && oldPosition < oldCount) {
+                tabViews[i] = oldViews[oldPosition];
+                reused[oldPosition] = true;
+            }
+        }
+
+        int spare = 0;
+        for (int i = 0; i < tabViews.length; i++) {
+            if (tabViews[i] != null) {
+                continue;
+            }
+            while (spare < oldCount && reused[spare]) {
+                spare++;
+            }
+            if (spare < oldCount) {
+                tabViews[i] = oldViews[spare];
+                reused[spare] = true;
+            } else {
+                tabViews[i] = createTabView();
+            }
+            bindTabView(tabViews[i], i);
+        }
+
+        mTabStrip.setTabViews(tabViews);
+    }
+
+    /**
+     * Measure every tab with a single view so that the strip knows its geometry without keeping a
+     * view per page. Tabs with an entry in {@code oldPositions} keep their previous size.
+     *
+     * @return the width of every tab; the title widths and tab height are left in
+     * {@link #mVirtualTitleWidths} and {@link #mVirtualTabHeight}.
+     */
+    private int[] measureVirtualTabs(int[] oldPositions) {
+        final int count = mTabTitles.length;
+        final int[] tabWidths = new int[count];
+        final int[] titleWidths = new int[count];
+        int tabHeight = oldPositions != null ? mVirtualTabHeight : 0;
+
+        View measuringView = null;
+        TextView measuringTitleView = null;
+        if (mRestoredState != null && mTitleStyle == null) {
+            // The restored measurements are checked against the title style before they are used
+            measuringView = createMeasuringTabView();
+            measuringTitleView = mTabStrip.findTitleView(measuringView);
+            updateTitleStyle(measuringTitleView);
+        }
+        final int unspecified = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        for (int i = 0; i < count; i++) {
+            int oldPosition = oldPositions != null ? oldPositions[i] : -1;
+            if (oldPosition >= 0) {
+                tabWidths[i] = mTabStrip.getTabWidth(oldPosition);
+                titleWidths[i] = mTabStrip.getTitleWidth(oldPosition);
+                continue;
+            }
+            if (oldPositions == null && hasRestoredMeasurements(i)) {
+                tabWidths[i] = mRestoredState.tabWidths[i];
+                titleWidths[i] = mRestoredState.titleWidths[i];
+                tabHeight = Math.max(tabHeight, mRestoredState.tabHeight);
+                continue;
+            }
+
+            if (measuringView == null) {
+                measuringView = createMeasuringTabView();
+                measuringTitleView = mTabStrip.findTitleView(measuringView);
+            }
+            bindTabView(measuringView, i);
+            measuringView.measure(unspecified, unspecified);
+            tabWidths[i] = measuringView.getMeasuredWidth();
+            titleWidths[i] = measuringTitleView != null
+                    ? mTabStrip.measureTitleWidth(i, measuringTitleView)
+                    : 0;
+            tabHeight = Math.max(tabHeight, measuringView.getMeasuredHeight());
+        }
+
+        if (measuringView != null) {
+            mTabStrip.addScrapView(measuringView);
+        }
+        mVirtualTitleWidths = titleWidths;
+        mVirtualTabHeight = tabHeight;
+        return tabWidths;
+    }
+
+    private View createMeasuringTabView() {
+        final View measuringView = createTabView();
+        measuringView.setLayoutParams(new SlidingTabStrip.TabLayoutParams(0));
+        return measuringView;
+    }
+
+    /**
+     * Measure every title as the default tab views would show it, for the strip to draw the titles
+     * itself. Titles worked out by {@link #setTitleExecutor(Executor)} are taken as they are.
+     */
+    private void measureFlatTabs() {
+        final TextView prototype = getDefaultTabPrototype();
+        if (mTitleStyle == null) {
+            updateTitleStyle(prototype);
+        }
+        final PrecomputedTitles titles = mPrecomputedTitles != null
+                ? mPrecomputedTitles
+                : new PrecomputedTitles(mTabTitles, prototype);
+        final int horizontalPadding = prototype.getCompoundPaddingLeft()
+                + prototype.getCompoundPaddingRight();
+        // Copied once, then kept by the strip to draw the titles with
+        TextPaint paint = mTabStrip.getFlatTitlePaint();
+        if (paint == null) {
+            paint = new TextPaint(prototype.getPaint());
+        }
+        final Paint.FontMetricsInt fontMetrics = paint.getFontMetricsInt();
+        final int tabHeight = fontMetrics.bottom - fontMetrics.top
+                + prototype.getCompoundPaddingTop() + prototype.getCompoundPaddingBottom();
+
+        final int count = mTabTitles.length;
+        final String[] displayTitles = new String[count];
+        final int[] tabWidths = new int[count];
+        final int[] titleWidths = new int[count];
+        for (int i = 0; i < count; i++) {
+            CharSequence displayTitle = titles.getDisplayTitle(i, mTabTitles[i]);
+            displayTitles[i] = displayTitle.toString();
+            titleWidths[i] = hasRestoredMeasurements(i)
+                    ? mRestoredState.titleWidths[i]
+                    : titles.getTitleWidth(i, displayTitle);
+            tabWidths[i] = titleWidths[i] + horizontalPadding;
+        }
+        mTabStrip.setFlatTabs(displayTitles, paint, tabWidths, titleWidths, tabHeight);
+    }
+
+    /**
+     * @return a default tab view that the titles are measured against, created once. It is never
+     * shown, so that it keeps its transformation, which recycled tab views may have lost.
+     */
+    private TextView getDefaultTabPrototype() {
+        if (mDefaultTabPrototype == null) {
+            mDefaultTabPrototype = createDefaultTabView(getContext());
+        }
+        return mDefaultTabPrototype;
+    }
+
+    /**
+     * @return whether the tab at {@code position} can take its measurements from the restored
+     * state, i.e. it has the title it had when the state was saved.
+     */
+    private boolean hasRestoredMeasurements(int position) {
+        final SavedState state = mRestoredState;
+        return state != null && position < state.titles.length
+                && TextUtils.equals(state.titles[position], mTabTitles[position]);
+    }
+
+    private static CharSequence[] getPageTitles(PagerAdapter adapter) {
+        final CharSequence[] titles = new CharSequence[adapter.getCount()];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = adapter.getPageTitle(i);
+        }
+        return titles;
+    }
+
+    /**
+     * @return for each of {@code newTitles}, the position of an equal title in {@code oldTitles},
+     * or -1 if it is new. Every old position is matched at most once.
+     */
+    private static int[] matchTitles(CharSequence[] oldTitles, CharSequence[] newTitles) {
+        final int[] oldPositions = new int[newTitles.length];
+        final HashMap<String, ArrayDeque<Integer>> unmatched = new HashMap<String, ArrayDeque<Integer>>();
+        for (int i = 0; i < oldTitles.length; i++) {
+            String key = String.valueOf(oldTitles[i]);
+            ArrayDeque<Integer> positions = unmatched.get(key);
+            if (positions == null) {
+                positions = new ArrayDeque<Integer>();
+                unmatched.put(key, positions);
+            }
+            positions.add(i);
+        }
+
+        for (int i = 0; i < newTitles.length; i++) {
+            ArrayDeque<Integer> positions = unmatched.get(String.valueOf(newTitles[i]));
+            oldPositions[i] = positions != null && !positions.isEmpty() ? positions.poll() : -1;
+        }
+        return oldPositions;
+    }
+
+    private View createTabView() {
+        View tabView = mTabStrip.takeScrapView();
+        if (tabView != null) {
+            return tabView;
+        }
+        if (mTabViewPool != null) {
+            tabView = mTabViewPool.getRecycledView(mTabViewOrigin);
+            if (tabView != null) {
+                reuseTabView(tabView);
+                return tabView;
+            }
+        }
+
+        if (mTabViewLayoutId != 0) {
+            // If there is a custom tab view layout id set, try and inflate it
+            tabView = LayoutInflater.from(getContext()).inflate(mTabViewLayoutId, mTabStrip,
+                    false);
+        }
 
-        if (selectedChild != null) {
-            int targetScrollX = selectedChild.getLeft() + positionOffset;
+        if (tabView == null) {
+            tabView = createDefaultTabView(getContext());
+            if (mPrecomputedTitles != null) {
+                // The titles are bound already transformed
+                mTabStrip.findTitleView(tabView).setTransformationMethod(null);
+            }
+        }
+        if (mMetrics != null) {
+            mMetrics.count(MetricsListener.COUNT_TAB_INFLATION);
+        }
+        TabViewPool.setOrigin(tabView, mTabViewOrigin);
+        // Set once per view, so that rebinding recycled tab views while scrolling allocates nothing
+        tabView.setOnClickListener(mTabClickListener);
+        return tabView;
+    }
 
-            if (tabIndex > 0 || positionOffset > 0) {
-                // If we're not at the first child and are mid-scroll, make sure we obey the offset
-                targetScrollX -= mTitleOffset;
+    /**
+     * Take over a tab view from the pool, which may have been used by another tab layout.
+     */
+    private void reuseTabView(View tabView) {
+        if (mTabViewLayoutId == 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            // Shown in all caps unless the titles are bound already transformed
+            TextView titleView = mTabStrip.findTitleView(tabView);
+            boolean allCaps = mPrecomputedTitles == null;
+            if ((titleView.getTransformationMethod() != null) != allCaps) {
+                titleView.setAllCaps(allCaps);
             }
-            scrollTo(targetScrollX, 0);
+        }
+        tabView.setOnClickListener(mTabClickListener);
+    }
+
+    private void bindTabView(View tabView, int position) {
+        TextView tabTitleView = mTabStrip.findTitleView(tabView);
+        if (mTitleStyle == null) {
+            updateTitleStyle(tabTitleView);
+        }
+        if (mPrecomputedTitles != null) {
+            tabTitleView.setText(mPrecomputedTitles.getDisplayTitle(position, mTabTitles[position]));
+        } else {
+            tabTitleView.setText(mTabTitles[position]);
+        }
+        setTitleColor(tabTitleView, position, position == mHighlightedPosition ? 1f : 0f);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        if (mViewPager == null) {
+            return;
+        }
+        if (mTabStrip.getWidth() > 0) {
+            scrollToTab(mViewPager.getCurrentItem(), 0);
+        } else if (mPendingScrollPosition < 0) {
+            // Scrolling now would be clamped to the empty strip, scroll once it is laid out
+            mPendingScrollPosition = mViewPager.getCurrentItem();
+            mPendingScrollX = -1;
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (mPendingScrollPosition >= 0) {
+            applyPendingScroll();
+        }
+    }
+
+    /**
+     * Scroll to where the strip was before it was laid out, or to the current tab if the pager has
+     * moved on since, once that tab is in the strip.
+     */
+    private void applyPendingScroll() {
+        if (mViewPager == null) {
+            mPendingScrollPosition = -1;
+            return;
+        }
+        final int position = mViewPager.getCurrentItem();
+        if (position >= mTabStrip.getTabCount()) {
+            return;
+        }
+        if (position == mPendingScrollPosition && mPendingScrollX >= 0) {
+            scrollTo(mPendingScrollX, 0);
+        } else {
+            scrollToTab(position, 0);
+        }
+        mPendingScrollPosition = -1;
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState state = new SavedState(super.onSaveInstanceState());
+        state.selectedPosition = mViewPager != null ? mViewPager.getCurrentItem() : -1;
+        state.scrollX = getScrollX();
+        state.measurementKey = getMeasurementKey();
+        state.titleStyle = mTitleStyle;
+        // Only tabs that are all in place and measured
+        final int tabCount = mTabStrip.getTabCount();
+        final boolean measured = mPopulatedTabCount < 0 && tabCount == mTabTitles.length
+                && (mTabStrip.getWidth() > 0 || mVirtualized || usesFlatTabs());
+        state.titles = new String[measured ? tabCount : 0];
+        state.tabWidths = new int[state.titles.length];
+        state.titleWidths = new int[state.titles.length];
+        for (int i = 0; i < state.titles.length; i++) {
+            state.titles[i] = String.valueOf(mTabTitles[i]);
+            state.tabWidths[i] = mTabStrip.getTabWidth(i);
+            state.titleWidths[i] = mTabStrip.getTitleWidth(i);
+        }
+        state.tabHeight = mVirtualTabHeight;
+        return state;
+    }
+
+    /**
+     * Reuse the selection, scroll offset and tab measurements saved before a configuration change,
+     * so that the first frame neither measures the titles again nor starts scrolled to the first
+     * tab. The measurements are only reused for tabs with the same titles, under the same density,
+     * font scale, locale and title text style.
+     */
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+
+        mRestoredState = null;
+        mRestoredTitleStyle = null;
+        if (savedState.titles.length > 0 && getMeasurementKey().equals(savedState.measurementKey)
+                && savedState.titleStyle != null
+                && (mTitleStyle == null || mTitleStyle.equals(savedState.titleStyle))) {
+            if (mTitleStyle == null) {
+                // Compared once the tab views are there
+                mRestoredTitleStyle = savedState.titleStyle;
+            }
+            if (mViewPager == null) {
+                // For the tabs measured when the pager is set
+                mRestoredState = savedState;
+            }
+            // Tab views are laid out after the restore in any case
+            mTabStrip.setRestoredTitleWidths(savedState.titles, savedState.titleWidths);
+        }
+
+        final int position = savedState.selectedPosition;
+        if (mViewPager != null && position >= 0 && position < mTabStrip.getTabCount()
+                && !mTabJump.isActive()) {
+            mTabStrip.onViewPagerPageChanged(position, 0f);
+            setHighlightedTab(position);
+        }
+        mPendingScrollPosition = position;
+        mPendingScrollX = savedState.scrollX;
+        if (mTabStrip.getWidth() > 0) {
+            applyPendingScroll();
+        }
+    }
+
+    /**
+     * @return a key of what the title measurements depend on besides the titles, the tab views and
+     * the text style of their titles.
+     */
+    private String getMeasurementKey() {
+        final Configuration configuration = getResources().getConfiguration();
+        return getResources().getDisplayMetrics().density + "/" + configuration.fontScale
+                + "/" + PrecomputedTitles.getPrimaryLocale(configuration) + "/" + mTabViewLayoutId
+                + "/" + usesFlatTabs();
+    }
+
+    /**
+     * Note the text style of the title views from {@code titleView}, which is null if the tab views
+     * have no title, and stop using restored measurements taken with another style. Only values
+     * that survive the process are kept, so that measurements restored after process death match.
+     */
+    private void updateTitleStyle(TextView titleView) {
+        if (titleView == null) {
+            mTitleStyle = "";
+        } else {
+            final TextPaint paint = titleView.getPaint();
+            final Typeface typeface = paint.getTypeface();
+            mTitleStyle = paint.getTextSize() + "/"
+                    + (typeface != null ? typeface.getStyle() : Typeface.NORMAL) + "/"
+                    + paint.getTextScaleX();
+        }
+        if (mRestoredTitleStyle != null && !mRestoredTitleStyle.equals(mTitleStyle)) {
+            mRestoredState = null;
+            mTabStrip.setRestoredTitleWidths(null, null);
+        }
+        mRestoredTitleStyle = null;
+    }
+
+    @Override
+    protected void measureChildWithMargins(View child, int parentWidthMeasureSpec, int widthUsed,
+                                           int parentHeightMeasureSpec, int heightUsed) {
+        if (child != mTabStrip || !mTabStrip.isEvenSplit()
+                || MeasureSpec.getMode(parentWidthMeasureSpec) == MeasureSpec.UNSPECIFIED) {
+            super.measureChildWithMargins(child, parentWidthMeasureSpec, widthUsed,
+                    parentHeightMeasureSpec, heightUsed);
+            return;
+        }
+
+        // Evenly split tabs exactly fill the viewport, so measure the strip at the viewport width
+        // right away rather than unconstrained first and then again to fill the viewport
+        final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+        final int childWidthMeasureSpec = getChildMeasureSpec(parentWidthMeasureSpec,
+                getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin + widthUsed,
+                LayoutParams.MATCH_PARENT);
+        final int childHeightMeasureSpec = getChildMeasureSpec(parentHeightMeasureSpec,
+                getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin + heightUsed,
+                lp.height);
+        child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        if (ev.getActionMasked() == MotionEvent.ACTION_DOWN && mOnSelectionPredictedListener != null) {
+            // A new gesture, the tab may be reported again
+            mPredictedPosition = -1;
+            mPredictedConfidence = -1;
+            predictSelection(mTabStrip.findTabAt(ev.getX() + getScrollX() - mTabStrip.getLeft()),
+                    OnSelectionPredictedListener.CONFIDENCE_LOW);
+        }
+        return super.onInterceptTouchEvent(ev);
+    }
+
+    /**
+     * Report {@code position} as likely to be selected next, unless it is already selected or was
+     * already reported with at least this confidence.
+     */
+    private void predictSelection(int position, int confidence) {
+        if (mOnSelectionPredictedListener == null || position < 0
+                || position >= mTabStrip.getTabCount() || position == mViewPager.getCurrentItem()
+                || (position == mPredictedPosition && confidence <= mPredictedConfidence)) {
+            return;
+        }
+        mPredictedPosition = position;
+        mPredictedConfidence = confidence;
+        mOnSelectionPredictedListener.onSelectionPredicted(position, confidence);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mTabStrip.setViewport(getScrollX(), w);
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        mTabStrip.setViewport(l, getWidth());
+    }
+
+    private void scrollToTab(int tabIndex, int positionOffset) {
+        final int tabStripChildCount = mTabStrip.getTabCount();
+        if (tabStripChildCount == 0 || tabIndex < 0 || tabIndex >= tabStripChildCount) {
+            return;
+        }
+
+        final TabMetrics metrics = mMetrics;
+        final long start = metrics != null ? metrics.beginSpan(MetricsListener.SPAN_SCROLL_TO_TAB) : 0;
+        int targetScrollX = mTabStrip.getTabLeft(tabIndex) + positionOffset;
+
+        if (tabIndex > 0 || positionOffset > 0) {
+            // If we're not at the first child and are mid-scroll, make sure we obey the offset
+            targetScrollX -= mTitleOffset;
+        }
+        scrollTo(targetScrollX, 0);
+        if (metrics != null) {
+            metrics.endSpan(MetricsListener.SPAN_SCROLL_TO_TAB, start);
         }
     }
 
@@ -386,41 +1540,116 @@ public class SlidingTabLayout extends HorizontalScrollView {
         private int mCurrentScrollState;
         private int mPrevScrollState;
 
+        private int     mPendingPosition;
+        private float   mPendingPositionOffset;
+        private boolean mUpdateScheduled;
+
+        // Where the pager was last reported, in pages, and which way it was moving
+        private float   mLastScrollPage = -1f;
+        private boolean mScrollingForward;
+
+        private final Runnable mApplyPendingUpdate = new Runnable() {
+            @Override
+            public void run() {
+                mUpdateScheduled = false;
+                applyPageScroll(mPendingPosition, mPendingPositionOffset);
+            }
+        };
+
         @Override
         public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
-            int tabStripChildCount = mTabStrip.getChildCount();
+            int tabStripChildCount = mTabStrip.getTabCount();
             if ((tabStripChildCount == 0) || (position < 0) || (position >= tabStripChildCount)) {
                 return;
             }
 
+            if (mOnSelectionPredictedListener != null) {
+                predictDraggedPage(position, positionOffset);
+            }
+
+            if (mFrameCoalescing) {
+                schedulePageScroll(position, positionOffset);
+            } else {
+                applyPageScroll(position, positionOffset);
+            }
 
+            final ViewPager.OnPageChangeListener[] listeners = mPageChangeListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].onPageScrolled(position, positionOffset, positionOffsetPixels);
+            }
+        }
+
+        /**
+         * Report the page the pager is dragged towards once it is dragged past the threshold.
+         * Towards the right the pager reports the current page and a growing offset, towards the
+         * left the previous page and a shrinking one.
+         */
+        private void predictDraggedPage(int position, float positionOffset) {
+            final float scrollPage = position + positionOffset;
+            if (mLastScrollPage >= 0f && scrollPage != mLastScrollPage) {
+                mScrollingForward = scrollPage > mLastScrollPage;
+            }
+            mLastScrollPage = scrollPage;
+            if (mCurrentScrollState != ViewPager.SCROLL_STATE_DRAGGING) {
+                return;
+            }
+            final int currentPosition = mViewPager.getCurrentItem();
+            if (position == currentPosition && positionOffset > mPredictionThreshold) {
+                predictSelection(currentPosition + 1, OnSelectionPredictedListener.CONFIDENCE_MEDIUM);
+            } else if (position == currentPosition - 1 && 1f - positionOffset > mPredictionThreshold) {
+                predictSelection(currentPosition - 1, OnSelectionPredictedListener.CONFIDENCE_MEDIUM);
+            }
+        }
+
+        /**
+         * Report the page the pager was moving towards when the drag was released, which is
+         * where a fling takes it.
+         */
+        private void predictReleasedPage() {
+            if (mLastScrollPage < 0f) {
+                return;
+            }
+            final int position = (int) mLastScrollPage;
+            predictSelection(mScrollingForward ? position + 1 : position,
+                    OnSelectionPredictedListener.CONFIDENCE_HIGH);
+        }
+
+        /**
+         * Record the latest scroll position, to be applied by a single callback on the next frame.
+         */
+        private void schedulePageScroll(int position, float positionOffset) {
+            mPendingPosition = position;
+            mPendingPositionOffset = positionOffset;
+            if (!mUpdateScheduled) {
+                mUpdateScheduled = true;
+                ViewCompat.postOnAnimation(SlidingTabLayout.this, mApplyPendingUpdate);
+            }
+        }
+
+        private void applyPageScroll(int position, float positionOffset) {
+            int tabStripChildCount = mTabStrip.getTabCount();
+            if (position >= tabStripChildCount || mTabJump.isActive()) {
+                return;
+            }
+
+            final TabMetrics metrics = mMetrics;
+            final long start = metrics != null ? metrics.beginSpan(MetricsListener.SPAN_PAGE_SCROLL) : 0;
             mTabStrip.onViewPagerPageChanged(position, positionOffset);
-            if (mCurrentScrollState == ViewPager.SCROLL_STATE_DRAGGING ||
+            if (mSmoothTitleColors) {
+                blendTabColors(position, positionOffset);
+            } else if (mCurrentScrollState == ViewPager.SCROLL_STATE_DRAGGING ||
                     (mPrevScrollState == ViewPager.SCROLL_STATE_DRAGGING &&
                             mCurrentScrollState == ViewPager.SCROLL_STATE_SETTLING)) {
-                TextView textView = (TextView) mTabStrip.getChildAt(position);
-                TextView nextTextView = (TextView) mTabStrip.getChildAt(position + 1);
-                if (textView != null && nextTextView != null) {
-                    if (positionOffset <= 0.5) {
-                        nextTextView.setTextColor(mTabTextColor);
-                        textView.setTextColor(mTabSelectedTextColor);
-                    } else {
-                        nextTextView.setTextColor(mTabSelectedTextColor);
-                        textView.setTextColor(mTabTextColor);
-                    }
+                if (position + 1 < tabStripChildCount) {
+                    setHighlightedTab(positionOffset <= 0.5 ? position : position + 1);
                 }
 
             }
 
-            View selectedTitle = mTabStrip.getChildAt(position);
-            int extraOffset = (selectedTitle != null)
-                    ? (int) (positionOffset * selectedTitle.getWidth())
-                    : 0;
+            int extraOffset = (int) (positionOffset * mTabStrip.getTabWidth(position));
             scrollToTab(position, extraOffset);
-
-            if (mViewPagerPageChangeListener != null) {
-                mViewPagerPageChangeListener.onPageScrolled(position, positionOffset,
-                        positionOffsetPixels);
+            if (metrics != null) {
+                metrics.endSpan(MetricsListener.SPAN_PAGE_SCROLL, start);
             }
         }
 
@@ -428,46 +1657,379 @@ public class SlidingTabLayout extends HorizontalScrollView {
         public void onPageScrollStateChanged(int state) {
             mPrevScrollState = mCurrentScrollState;
             mCurrentScrollState = state;
+            if (state == ViewPager.SCROLL_STATE_DRAGGING) {
+                // The user took over, follow the pager again
+                mTabJump.cancel();
+            } else if (state == ViewPager.SCROLL_STATE_IDLE) {
+                mTabJump.finishIfSettled();
+                mLastScrollPage = -1f;
+                mPredictedPosition = -1;
+                mPredictedConfidence = -1;
+            }
+            if (state == ViewPager.SCROLL_STATE_SETTLING
+                    && mPrevScrollState == ViewPager.SCROLL_STATE_DRAGGING
+                    && mOnSelectionPredictedListener != null) {
+                predictReleasedPage();
+            }
 
-            if (mViewPagerPageChangeListener != null) {
-                mViewPagerPageChangeListener.onPageScrollStateChanged(state);
+            final ViewPager.OnPageChangeListener[] listeners = mPageChangeListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].onPageScrollStateChanged(state);
             }
         }
 
         @Override
         public void onPageSelected(int position) {
-            if (mCurrentScrollState == ViewPager.SCROLL_STATE_IDLE) {
-                mTabStrip.onViewPagerPageChanged(position, 0f);
-                scrollToTab(position, 0);
-            }
-
-            int count = mTabStrip.getChildCount();
-            for (int i = 0; i < count; i++) {
-                if (position == i) {
-                    TextView tabTitleView = (TextView) mTabStrip.getChildAt(position);
-                    tabTitleView.setTextColor(mTabSelectedTextColor);
+            if (mCurrentScrollState == ViewPager.SCROLL_STATE_IDLE && !mTabJump.isActive()) {
+                if (mFrameCoalescing) {
+                    schedulePageScroll(position, 0f);
                 } else {
-                    ((TextView) mTabStrip.getChildAt(i)).setTextColor(mTabTextColor);
+                    mTabStrip.onViewPagerPageChanged(position, 0f);
+                    scrollToTab(position, 0);
                 }
             }
 
+            if (!mTabJump.isActive()
+                    && (!mSmoothTitleColors || mCurrentScrollState == ViewPager.SCROLL_STATE_IDLE)) {
+                setHighlightedTab(position);
+            }
+
 
-            if (mViewPagerPageChangeListener != null) {
-                mViewPagerPageChangeListener.onPageSelected(position);
+            final ViewPager.OnPageChangeListener[] listeners = mPageChangeListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].onPageSelected(position);
             }
         }
 
     }
 
-    private class TabClickListener implements OnClickListener {
+    /**
+     * The selection, scroll offset and tab measurements of the layout. The tab measurements are
+     * empty unless every tab was populated and measured.
+     */
+    static class SavedState extends BaseSavedState {
+        int      selectedPosition;
+        int      scrollX;
+        String   measurementKey;
+        String   titleStyle;
+        String[] titles;
+        int[]    tabWidths;
+        int[]    titleWidths;
+        int      tabHeight;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(Parcel source) {
+            super(source);
+            selectedPosition = source.readInt();
+            scrollX = source.readInt();
+            measurementKey = source.readString();
+            titleStyle = source.readString();
+            titles = source.createStringArray();
+            tabWidths = source.createIntArray();
+            titleWidths = source.createIntArray();
+            tabHeight = source.readInt();
+        }
+
         @Override
-        public void onClick(View v) {
-            for (int i = 0; i < mTabStrip.getChildCount(); i++) {
-                if (v == mTabStrip.getChildAt(i)) {
-                    mViewPager.setCurrentItem(i);
+        public void writeToParcel(Parcel dest, int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeInt(selectedPosition);
+            dest.writeInt(scrollX);
+            dest.writeString(measurementKey);
+            dest.writeString(titleStyle);
+            dest.writeStringArray(titles);
+            dest.writeIntArray(tabWidths);
+            dest.writeIntArray(titleWidths);
+            dest.writeInt(tabHeight);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    /**
+     * Badge updates waiting for the next frame, where only the latest one per tab is applied.
+     */
+    private class BadgeUpdates implements Runnable {
+        private int[]   mPositions = new int[0];
+        private int[]   mBadges    = new int[0];
+        private int     mCount;
+        private boolean mScheduled;
+
+        void set(int position, int badge) {
+            if (position < 0) {
+                return;
+            }
+            for (int i = 0; i < mCount; i++) {
+                if (mPositions[i] == position) {
+                    mBadges[i] = badge;
                     return;
                 }
             }
+            if (mCount == mPositions.length) {
+                final int length = Math.max(4, mCount * 2);
+                mPositions = Arrays.copyOf(mPositions, length);
+                mBadges = Arrays.copyOf(mBadges, length);
+            }
+            mPositions[mCount] = position;
+            mBadges[mCount] = badge;
+            mCount++;
+            if (!mScheduled) {
+                mScheduled = true;
+                ViewCompat.postOnAnimation(SlidingTabLayout.this, this);
+            }
+        }
+
+        @Override
+        public void run() {
+            mScheduled = false;
+            apply();
+        }
+
+        void apply() {
+            final int tabCount = mTabTitles.length;
+            for (int i = 0; i < mCount; i++) {
+                if (mPositions[i] < tabCount) {
+                    mTabStrip.setBadge(mPositions[i], mBadges[i]);
+                }
+            }
+            mCount = 0;
+        }
+
+        void clear() {
+            mCount = 0;
+        }
+    }
+
+    /**
+     * Moves the indicator and the scroll position straight from one tab to another, one step per
+     * frame, while the pager scrolls through the pages in between. The jump lasts until both the
+     * animation has ended and the pager has settled; the tabs then catch up with the pager.
+     */
+    private class TabJump implements Runnable {
+        private final Interpolator mInterpolator = new DecelerateInterpolator();
+
+        private int     mFromPosition;
+        private int     mToPosition;
+        private int     mStartScrollX;
+        private int     mEndScrollX;
+        private long    mStartTime;
+        private int     mDuration;
+        private boolean mActive;
+        private boolean mAnimating;
+
+        void start(int fromPosition, int toPosition) {
+            if (toPosition >= mTabStrip.getTabCount()) {
+                return;
+            }
+            mFromPosition = fromPosition;
+            mToPosition = toPosition;
+            mStartScrollX = getScrollX();
+            mEndScrollX = mTabStrip.getTabLeft(toPosition) - (toPosition > 0 ? mTitleOffset : 0);
+            mStartTime = AnimationUtils.currentAnimationTimeMillis();
+            mDuration = getResources().getInteger(android.R.integer.config_shortAnimTime);
+            mActive = true;
+            if (!mAnimating) {
+                mAnimating = true;
+                ViewCompat.postOnAnimation(SlidingTabLayout.this, this);
+            }
+            // Highlight the target right away, rather than every page on the way
+            if (!mSmoothTitleColors) {
+                setHighlightedTab(toPosition);
+            }
+        }
+
+        boolean isActive() {
+            return mActive;
+        }
+
+        @Override
+        public void run() {
+            if (!mActive) {
+                mAnimating = false;
+                return;
+            }
+
+            final long elapsed = AnimationUtils.currentAnimationTimeMillis() - mStartTime;
+            final float progress = mDuration > 0 ? Math.min(1f, elapsed / (float) mDuration) : 1f;
+            final float fraction = mInterpolator.getInterpolation(progress);
+            mTabStrip.onTabJumpProgress(mFromPosition, mToPosition, fraction);
+            if (mSmoothTitleColors) {
+                setTabColor(mFromPosition, 1f - fraction);
+                setTabColor(mToPosition, fraction);
+            }
+            scrollTo(mStartScrollX + (int) (fraction * (mEndScrollX - mStartScrollX)), 0);
+
+            if (progress < 1f) {
+                ViewCompat.postOnAnimation(SlidingTabLayout.this, this);
+            } else {
+                mAnimating = false;
+                finishIfSettled();
+            }
+        }
+
+        /**
+         * End the jump if the animation is done and the pager is idle.
+         */
+        void finishIfSettled() {
+            if (!mActive || mAnimating
+                    || mPageChangeListener.mCurrentScrollState != ViewPager.SCROLL_STATE_IDLE) {
+                return;
+            }
+            mActive = false;
+            final int position = mViewPager.getCurrentItem();
+            mTabStrip.onViewPagerPageChanged(position, 0f);
+            scrollToTab(position, 0);
+            mBlendPosition = -1;
+            updateTabColors(position);
+        }
+
+        /**
+         * Stop the jump where it is, leaving the tabs to follow the pager's callbacks again.
+         */
+        void cancel() {
+            mActive = false;
+        }
+    }
+
+    /**
+     * Move the selected title color to {@code position}. Only the previously highlighted tab and
+     * the new one are recolored, however many tabs there are.
+     */
+    private void setHighlightedTab(int position) {
+        if (position == mHighlightedPosition) {
+            return;
+        }
+
+        setTabColor(mHighlightedPosition, 0f);
+        setTabColor(position, 1f);
+        mHighlightedPosition = position;
+    }
+
+    /**
+     * Crossfade the title colors of the tabs at {@code position} and {@code position + 1}. Tabs
+     * of the previously blended pair that are not part of the new one go back to unselected.
+     */
+    private void blendTabColors(int position, float positionOffset) {
+        if (position != mBlendPosition) {
+            resetTabColor(mBlendPosition, position);
+            resetTabColor(mBlendPosition + 1, position);
+            resetTabColor(mHighlightedPosition, position);
+            mBlendPosition = position;
+        }
+
+        setTabColor(position, 1f - positionOffset);
+        if (position + 1 < mTabStrip.getTabCount()) {
+            setTabColor(position + 1, positionOffset);
+        }
+        mHighlightedPosition = positionOffset <= 0.5f ? position : position + 1;
+    }
+
+    private void resetTabColor(int tabPosition, int blendPosition) {
+        if (tabPosition >= 0 && tabPosition != blendPosition && tabPosition != blendPosition + 1) {
+            setTabColor(tabPosition, 0f);
+        }
+    }
+
+    private void setTabColor(int position, float selectedFraction) {
+        if (usesFlatTabs()) {
+            mTabStrip.setFlatTitleFraction(position, selectedFraction);
+            if (mMetrics != null) {
+                mMetrics.count(MetricsListener.COUNT_RECOLOR);
+            }
+            return;
+        }
+        TextView titleView = mTabStrip.getTitleView(position);
+        if (titleView != null) {
+            setTitleColor(titleView, position, selectedFraction);
+        }
+    }
+
+    private void setTitleColor(TextView titleView, int position, float selectedFraction) {
+        titleView.setTextColor(mTabStrip.getTitleColorList(position, selectedFraction));
+        if (mMetrics != null) {
+            mMetrics.count(MetricsListener.COUNT_RECOLOR);
+        }
+    }
+
+    /**
+     * Recolor every attached tab, e.g. after tabs were added, removed or moved.
+     */
+    private void updateTabColors(int selectedPosition) {
+        mHighlightedPosition = selectedPosition;
+        if (usesFlatTabs()) {
+            mTabStrip.setFlatSelectedTitle(selectedPosition);
+            return;
+        }
+        int count = mTabStrip.getChildCount();
+        for (int i = 0; i < count; i++) {
+            View tabView = mTabStrip.getChildAt(i);
+            TextView tabTitleView = mTabStrip.findTitleView(tabView);
+            int position = mTabStrip.getTabPosition(tabView);
+            setTitleColor(tabTitleView, position, position == selectedPosition ? 1f : 0f);
+        }
+    }
+
+    private void onPagerAdapterChanged() {
+        if (mPrecomputedTitles != null && !mPrecomputedTitles.isReady()) {
+            // The strip is populated with the current titles once the precomputed ones are ready
+            return;
+        }
+        updateTabStrip();
+    }
+
+    private class PagerAdapterObserver extends DataSetObserver {
+        @Override
+        public void onChanged() {
+            onPagerAdapterChanged();
+        }
+
+        @Override
+        public void onInvalidated() {
+            onPagerAdapterChanged();
+        }
+    }
+
+    private class TabClickListener implements OnClickListener, SlidingTabStrip.OnTabClickListener {
+        @Override
+        public void onClick(View v) {
+            onTabClick(mTabStrip.getTabPosition(v));
+        }
+
+        @Override
+        public void onTabClick(int position) {
+            if (position < 0) {
+                return;
+            }
+            final int currentPosition = mViewPager.getCurrentItem();
+            if (mDirectTabJumps && Math.abs(position - currentPosition) > 1) {
+                mTabJump.start(currentPosition, position);
+            }
+            mViewPager.setCurrentItem(position);
+        }
+    }
+
+    private class InternalTabViewBinder implements SlidingTabStrip.TabViewBinder {
+        @Override
+        public View createTabView() {
+            return SlidingTabLayout.this.createTabView();
+        }
+
+        @Override
+        public void bindTabView(View tabView, int position) {
+            SlidingTabLayout.this.bindTabView(tabView, position);
         }
     }
 
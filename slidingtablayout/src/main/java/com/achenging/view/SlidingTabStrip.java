@@ -17,19 +17,76 @@
 package com.achenging.view;
 
 import android.content.Context;
+import android.content.res.ColorStateList;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.LinearGradient;
 import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.text.method.TransformationMethod;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
 import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.accessibility.AccessibilityEvent;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.achenging.view.core.TabColors;
+import com.achenging.view.core.TabGeometry;
+import com.achenging.view.core.TitleColorRamp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 
 class SlidingTabStrip extends LinearLayout {
 
+    /**
+     * Creates and binds tab views on demand while the strip is virtualized.
+     */
+    interface TabViewBinder {
+
+        View createTabView();
+
+        void bindTabView(View tabView, int position);
+    }
+
+    /**
+     * Receives clicks on the tabs the strip draws itself.
+     */
+    interface OnTabClickListener {
+
+        void onTabClick(int position);
+    }
+
+    /**
+     * Layout params of a tab view, remembering the adapter position the view is bound to.
+     */
+    static class TabLayoutParams extends LinearLayout.LayoutParams {
+        int position;
+
+        TabLayoutParams(int position) {
+            super(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT);
+            this.position = position;
+        }
+    }
+
     private static final int  DEFAULT_ERROR_DIPS                   = 1;
     private static final int  DEFAULT_BOTTOM_BORDER_THICKNESS_DIPS = 1;
     private static final byte DEFAULT_BOTTOM_BORDER_COLOR_ALPHA    = 0x00;
@@ -41,12 +98,42 @@ class SlidingTabStrip extends LinearLayout {
     //    private static final int   DEFAULT_DIVIDER_COLOR          = 0xFF999999;
     private static final float DEFAULT_DIVIDER_HEIGHT         = 0.5f;
 
+    // Tabs kept attached on each side of the viewport while virtualized
+    private static final int VIRTUAL_WINDOW_MARGIN = 2;
+
+    // Unscaled width of the indicator layer, stretched to the indicator width with scaleX
+    private static final int INDICATOR_LAYER_WIDTH = 100;
+
+    /**
+     * Badge value of a tab showing a dot instead of a count.
+     */
+    static final int BADGE_DOT  = -1;
+    /**
+     * Badge value of a tab showing no badge.
+     */
+    static final int BADGE_NONE = 0;
+
+    // Title color state lists kept, as many as the colors of all title color ramps
+    private static final int MAX_TITLE_COLOR_LISTS = TitleColorRamp.RAMPS * (TitleColorRamp.STEPS + 1);
+
+    private static final int MAX_BADGE_COUNT     = 99;
+    private static final int DEFAULT_BADGE_COLOR = 0xFFE53935;
+    private static final int BADGE_HEIGHT_DIPS   = 16;
+    private static final int BADGE_DOT_SIZE_DIPS = 8;
+    private static final int BADGE_MARGIN_DIPS   = 4;
+    private static final int BADGE_TEXT_SIZE_SP  = 10;
+
     private       int   mBottomBorderThickness;
     private final Paint mBottomBorderPaint;
 
     private       int   mSelectedIndicatorThickness;
     private final Paint mSelectedIndicatorPaint;
-    private       Paint mTextPaint;
+
+    private       int            mIndicatorShape = SlidingTabLayout.INDICATOR_SHAPE_RECT;
+    private       float          mIndicatorCornerRadius;
+    // Spans 0 to 1 horizontally, stretched over the indicator by the canvas
+    private       LinearGradient mIndicatorGradient;
+    private final RectF          mIndicatorRect  = new RectF();
 
     private float mTabDividerThickness;
     private int   mTabDividerColor;
@@ -59,13 +146,73 @@ class SlidingTabStrip extends LinearLayout {
 
     private int mLastPosition = -1;
     private int   mSelectedPosition;
+    // The tab the selection moves towards, the next one unless jumping
+    private int   mTargetPosition = 1;
     private float mSelectionOffset;
 
+    private boolean mEvenSplit;
+
+    private boolean mIndicatorOnlyInvalidation;
+    private View    mIndicatorLayer;
+
     private final int mErrorDips;
 
+    private TabMetrics mMetrics;
+
+    private int mTitleViewId;
+
+    private PrecomputedTitles mPrecomputedTitles;
+
+    // Title widths saved before a configuration change, until the tab views are measured
+    private String[] mRestoredTitles;
+    private int[]    mRestoredTitleWidths;
+
+    // Inputs the title width of each tab position was measured with
+    private CharSequence[]         mMeasuredTitles          = new CharSequence[0];
+    private float[]                mMeasuredTextSizes       = new float[0];
+    private Typeface[]             mMeasuredTypefaces       = new Typeface[0];
+    private TransformationMethod[] mMeasuredTransformations = new TransformationMethod[0];
+
+    // Per-tab geometry, rebuilt once per layout pass
+    private final TabGeometry mGeometry = new TabGeometry();
+
+    private       boolean         mVirtualized;
+    private       TabViewBinder   mTabViewBinder;
+    private       int             mVirtualTabHeight;
+    private       int             mFirstAttachedPosition;
+    private       int             mViewportLeft;
+    private       int             mViewportWidth;
+    private final ArrayList<View> mScrapViews = new ArrayList<View>();
+
+    // Titles drawn by the strip itself, with the selected fraction of their color
+    private       boolean               mFlat;
+    private       String[]              mFlatTitles         = new String[0];
+    private       float[]               mFlatTitleFractions = new float[0];
+    private       TextPaint             mFlatTitlePaint;
+    private final Paint.FontMetricsInt  mFlatFontMetrics    = new Paint.FontMetricsInt();
+    private       int                   mTouchedPosition    = -1;
+    private       OnTabClickListener    mOnTabClickListener;
+    private       FlatTabsAccessibility mFlatAccessibility;
+
     private       SlidingTabLayout.TabColorizer mCustomTabColorizer;
     private final SimpleTabColorizer            mDefaultTabColorizer;
 
+    private final TitleColorRamp mTitleColorRamp = new TitleColorRamp();
+
+    // Badge values by position, and the text and width of the count badges
+    private       int[]     mBadges      = new int[0];
+    private       String[]  mBadgeTexts  = new String[0];
+    private       int[]     mBadgeWidths = new int[0];
+    private       int       mBadgeCount;
+    private final Paint     mBadgePaint;
+    private final TextPaint mBadgeTextPaint;
+    private final RectF     mBadgeRect   = new RectF();
+    private final int       mBadgeHeight;
+    private final int       mBadgeDotSize;
+    private final int       mBadgeMargin;
+    // Color state lists of the title colors used, by color
+    private final SparseArray<ColorStateList> mTitleColorLists = new SparseArray<ColorStateList>();
+
     SlidingTabStrip(Context context) {
         this(context, null);
     }
@@ -74,20 +221,28 @@ class SlidingTabStrip extends LinearLayout {
         super(context, attrs);
         setWillNotDraw(false);
 
-        TypedValue outValue = new TypedValue();
-        context.getTheme().resolveAttribute(android.R.attr.colorForeground, outValue, true);
-        final int themeForegroundColor = outValue.data;
+        final int themeForegroundColor = TabStyleCache.get(context).getForegroundColor();
 
-        mBottomBorderColor = setColorAlpha(themeForegroundColor,
+        mBottomBorderColor = TabColors.setColorAlpha(themeForegroundColor,
                 DEFAULT_BOTTOM_BORDER_COLOR_ALPHA);
         mDefaultTabColorizer = new SimpleTabColorizer();
         mBottomBorderPaint = new Paint();
         mSelectedIndicatorPaint = new Paint();
         mDividerPaint = new Paint();
-        mTextPaint = new Paint();
-        mTextPaint.setAntiAlias(true);
 
         mErrorDips = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, DEFAULT_ERROR_DIPS, getResources().getDisplayMetrics());
+
+        final float density = getResources().getDisplayMetrics().density;
+        mBadgeHeight = (int) (BADGE_HEIGHT_DIPS * density);
+        mBadgeDotSize = (int) (BADGE_DOT_SIZE_DIPS * density);
+        mBadgeMargin = (int) (BADGE_MARGIN_DIPS * density);
+        mBadgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mBadgePaint.setColor(DEFAULT_BADGE_COLOR);
+        mBadgeTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        mBadgeTextPaint.setColor(Color.WHITE);
+        mBadgeTextPaint.setTextAlign(Paint.Align.CENTER);
+        mBadgeTextPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP,
+                BADGE_TEXT_SIZE_SP, getResources().getDisplayMetrics()));
     }
 
     public void setBottomBorderColor(int bottomBorderColor) {
@@ -122,6 +277,9 @@ class SlidingTabStrip extends LinearLayout {
 
     void setCustomTabColorizer(SlidingTabLayout.TabColorizer customTabColorizer) {
         mCustomTabColorizer = customTabColorizer;
+        if (mIndicatorLayer != null) {
+            updateIndicatorLayer();
+        }
         invalidate();
     }
 
@@ -129,9 +287,52 @@ class SlidingTabStrip extends LinearLayout {
         // Make sure that the custom colorizer is removed
         mCustomTabColorizer = null;
         mDefaultTabColorizer.setIndicatorColors(colors);
+        if (mIndicatorLayer != null) {
+            updateIndicatorLayer();
+        }
         invalidate();
     }
 
+    /**
+     * Set the shape of the indicator, one of the {@code SlidingTabLayout.INDICATOR_SHAPE_}
+     * constants. {@code cornerRadius} is only used by rounded indicators, and stands for half the
+     * indicator thickness when negative.
+     */
+    void setIndicatorShape(int shape, float cornerRadius) {
+        mIndicatorShape = shape;
+        mIndicatorCornerRadius = cornerRadius;
+        mSelectedIndicatorPaint.setAntiAlias(shape != SlidingTabLayout.INDICATOR_SHAPE_RECT);
+        onIndicatorStyleChanged();
+    }
+
+    /**
+     * Fill the indicator with a horizontal gradient through {@code colors} instead of the
+     * indicator colors, or go back to the indicator colors if {@code colors} is null.
+     */
+    void setIndicatorGradient(int[] colors) {
+        mIndicatorGradient = colors != null
+                ? new LinearGradient(0f, 0f, 1f, 0f, colors, null, Shader.TileMode.CLAMP)
+                : null;
+        mSelectedIndicatorPaint.setShader(mIndicatorGradient);
+        onIndicatorStyleChanged();
+    }
+
+    private void onIndicatorStyleChanged() {
+        if (mIndicatorLayer != null) {
+            updateIndicatorLayer();
+        }
+        invalidate();
+    }
+
+    /**
+     * @return whether the indicator layer draws the indicator, which it can only do for plain
+     * rectangles.
+     */
+    private boolean usesIndicatorLayer() {
+        return mIndicatorLayer != null && mIndicatorShape == SlidingTabLayout.INDICATOR_SHAPE_RECT
+                && mIndicatorGradient == null;
+    }
+
     void setDividerColors(int... colors) {
         // Make sure that the custom colorizer is removed
         mCustomTabColorizer = null;
@@ -155,100 +356,1111 @@ class SlidingTabStrip extends LinearLayout {
     }
 
 
-    void onViewPagerPageChanged(int position, float positionOffset) {
-        mSelectedPosition = position;
-        mSelectionOffset = positionOffset;
+    private SlidingTabLayout.TabColorizer getTabColorizer() {
+        return mCustomTabColorizer != null ? mCustomTabColorizer : mDefaultTabColorizer;
+    }
+
+    /**
+     * @return the title color of the tab at {@code position}, {@code selectedFraction} of the way
+     * from its unselected to its selected color. Blends come from a precomputed ramp, shared by the
+     * tabs with the same colors.
+     */
+    int getTitleColor(int position, float selectedFraction) {
+        final SlidingTabLayout.TabColorizer tabColorizer = getTabColorizer();
+        final int unselectedColor = tabColorizer.getUnselectedTitleColors(position);
+        final int selectedColor = tabColorizer.getSelectedColor(position);
+        return mTitleColorRamp.getColor(unselectedColor, selectedColor, selectedFraction);
+    }
+
+    /**
+     * @return {@link #getTitleColor(int, float)} as a color state list. Titles are recolored on
+     * every frame of a swipe, and {@link TextView#setTextColor(int)} wraps the color in a new
+     * list each time before Marshmallow, so lists are kept by color and reused.
+     */
+    ColorStateList getTitleColorList(int position, float selectedFraction) {
+        final int color = getTitleColor(position, selectedFraction);
+        ColorStateList colorList = mTitleColorLists.get(color);
+        if (colorList == null) {
+            if (mTitleColorLists.size() >= MAX_TITLE_COLOR_LISTS) {
+                mTitleColorLists.clear();
+            }
+            colorList = ColorStateList.valueOf(color);
+            mTitleColorLists.put(color, colorList);
+        }
+        return colorList;
+    }
+
+    /**
+     * Report drawing time and invalidations to {@code metrics}, or nothing if it is null.
+     */
+    void setMetrics(TabMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Take the title widths from {@code titles} where the tabs show them, rather than measuring.
+     */
+    void setPrecomputedTitles(PrecomputedTitles titles) {
+        mPrecomputedTitles = titles;
+    }
+
+    /**
+     * Set the id of the {@link TextView} holding the title inside a custom tab view.
+     */
+    void setTitleViewId(int titleViewId) {
+        mTitleViewId = titleViewId;
+    }
+
+    TextView getTitleView(int position) {
+        return findTitleView(getTabView(position));
+    }
+
+    TextView findTitleView(View tabView) {
+        if (tabView instanceof TextView) {
+            return (TextView) tabView;
+        }
+        if (tabView != null && mTitleViewId != 0) {
+            return (TextView) tabView.findViewById(mTitleViewId);
+        }
+        return null;
+    }
+
+    int getTabCount() {
+        return mVirtualized || mFlat ? mGeometry.getTabCount() : getChildCount();
+    }
+
+    /**
+     * @return the view of the tab at {@code position}, or null if the tab is virtualized and not
+     * currently attached.
+     */
+    View getTabView(int position) {
+        if (mVirtualized) {
+            position -= mFirstAttachedPosition;
+        }
+        return position >= 0 && position < getChildCount() ? getChildAt(position) : null;
+    }
+
+    int getTabPosition(View tabView) {
+        ViewGroup.LayoutParams params = tabView.getLayoutParams();
+        if (params instanceof TabLayoutParams) {
+            return ((TabLayoutParams) params).position;
+        }
+        return indexOfChild(tabView);
+    }
+
+    /**
+     * Replace the tabs with {@code tabViews}, in order. Only views that were added, removed or
+     * moved are detached or attached; the rest stay in place.
+     */
+    void setTabViews(View[] tabViews) {
+        for (int i = 0; i < getChildCount(); i++) {
+            ViewGroup.LayoutParams params = getChildAt(i).getLayoutParams();
+            if (params instanceof TabLayoutParams) {
+                ((TabLayoutParams) params).position = -1;
+            }
+        }
+        for (int i = 0; i < tabViews.length; i++) {
+            ViewGroup.LayoutParams params = tabViews[i].getLayoutParams();
+            if (params instanceof TabLayoutParams) {
+                ((TabLayoutParams) params).position = i;
+            } else {
+                tabViews[i].setLayoutParams(new TabLayoutParams(i));
+            }
+        }
+
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            if (getTabPosition(getChildAt(i)) < 0) {
+                removeViewInLayout(getChildAt(i));
+            }
+        }
+        for (int i = 0; i < tabViews.length; i++) {
+            View tabView = tabViews[i];
+            if (i < getChildCount() && getChildAt(i) == tabView) {
+                continue;
+            }
+            if (tabView.getParent() == this) {
+                removeViewInLayout(tabView);
+            }
+            addViewInLayout(tabView, i, tabView.getLayoutParams(), true);
+        }
+
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Remove every tab. Virtualized tab views are kept for reuse.
+     */
+    void removeAllTabs() {
+        if (mFlat) {
+            mFlat = false;
+            mFlatTitles = new String[0];
+            mFlatTitleFractions = new float[0];
+            mFlatAccessibility = null;
+            ViewCompat.setAccessibilityDelegate(this, null);
+            mGeometry.setTabCount(0);
+            requestLayout();
+            invalidate();
+        } else if (mVirtualized) {
+            recycleAllTabViews();
+            mGeometry.setTabCount(0);
+            requestLayout();
+        } else {
+            removeAllViews();
+        }
+    }
+
+    /**
+     * Remove all tabs, handing their views and the recycled ones over to {@code pool}, each with
+     * the views created from the same layout.
+     */
+    void removeAllTabs(TabViewPool pool) {
+        if (!mFlat && !mVirtualized) {
+            for (int i = 0; i < getChildCount(); i++) {
+                mScrapViews.add(getChildAt(i));
+            }
+        }
+        removeAllTabs();
+        for (int i = 0; i < mScrapViews.size(); i++) {
+            pool.putRecycledView(mScrapViews.get(i));
+        }
+        mScrapViews.clear();
+    }
+
+    /**
+     * When virtualized, only the tabs around the visible part of the strip are attached. The
+     * others are recycled and rebound through {@code tabViewBinder} as they scroll into view.
+     */
+    void setVirtualized(boolean virtualized, TabViewBinder tabViewBinder) {
+        removeAllTabs();
+        mVirtualized = virtualized;
+        mTabViewBinder = tabViewBinder;
+    }
+
+    /**
+     * Drop the recycled tab views, e.g. because the tab layout changed.
+     */
+    void clearScrapViews() {
+        mScrapViews.clear();
+    }
+
+    void addScrapView(View tabView) {
+        mScrapViews.add(tabView);
+    }
+
+    int getScrapViewCount() {
+        return mScrapViews.size();
+    }
+
+    /**
+     * @return a recycled or prewarmed tab view, or null if there is none.
+     */
+    View takeScrapView() {
+        return mScrapViews.isEmpty() ? null : mScrapViews.remove(mScrapViews.size() - 1);
+    }
+
+    /**
+     * Set the measured size of every tab of a virtualized strip.
+     */
+    void setVirtualTabs(int[] tabWidths, int[] titleWidths, int tabHeight) {
+        recycleAllTabViews();
+        mVirtualTabHeight = tabHeight;
+        mGeometry.setTabWidths(tabWidths, titleWidths);
+        mGeometry.updateIndicatorEdges(mErrorDips);
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Draw {@code titles} with {@code paint} instead of holding a view per tab, in tabs of the
+     * given sizes. The strip has no tab views while it draws the titles itself; clicks on the tabs
+     * go to the {@link #setOnTabClickListener(OnTabClickListener) tab click listener}, and
+     * accessibility services see each tab as a virtual view.
+     */
+    void setFlatTabs(String[] titles, TextPaint paint, int[] tabWidths, int[] titleWidths,
+                     int tabHeight) {
+        removeAllViews();
+        mFlat = true;
+        mFlatTitles = titles;
+        mFlatTitleFractions = new float[titles.length];
+        mFlatTitlePaint = paint;
+        paint.getFontMetricsInt(mFlatFontMetrics);
+        mVirtualTabHeight = tabHeight;
+        mGeometry.setTabWidths(tabWidths, titleWidths);
+        mGeometry.updateIndicatorEdges(mErrorDips);
+        if (mFlatAccessibility == null) {
+            mFlatAccessibility = new FlatTabsAccessibility();
+            ViewCompat.setAccessibilityDelegate(this, mFlatAccessibility);
+        } else {
+            mFlatAccessibility.invalidateRoot();
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * @return the paint the titles are drawn with in flat mode, or null before the first
+     * {@link #setFlatTabs}.
+     */
+    TextPaint getFlatTitlePaint() {
+        return mFlatTitlePaint;
+    }
+
+    /**
+     * Color the drawn title at {@code position} {@code selectedFraction} of the way from its
+     * unselected to its selected color, redrawing only that tab.
+     */
+    void setFlatTitleFraction(int position, float selectedFraction) {
+        if (position < 0 || position >= mFlatTitleFractions.length
+                || mFlatTitleFractions[position] == selectedFraction) {
+            return;
+        }
+        mFlatTitleFractions[position] = selectedFraction;
+        final int left = mGeometry.getTabLeft(position);
+        invalidate(left, 0, left + mGeometry.getTabWidth(position), getHeight());
+    }
+
+    /**
+     * Give the drawn title at {@code selectedPosition} its selected color and every other one its
+     * unselected color.
+     */
+    void setFlatSelectedTitle(int selectedPosition) {
+        for (int i = 0; i < mFlatTitleFractions.length; i++) {
+            mFlatTitleFractions[i] = i == selectedPosition ? 1f : 0f;
+        }
+        if (mFlatAccessibility != null) {
+            mFlatAccessibility.invalidateRoot();
+        }
         invalidate();
     }
 
+    /**
+     * Show {@code badge} on the tab at {@code position}: a count, {@link #BADGE_DOT} or
+     * {@link #BADGE_NONE}. The badge is drawn by the strip over the tab's top right corner, so
+     * changing it redraws only that tab and never lays out the strip.
+     */
+    void setBadge(int position, int badge) {
+        if (position >= mBadges.length) {
+            if (badge == BADGE_NONE) {
+                return;
+            }
+            final int length = Math.max(position + 1, mBadges.length * 2);
+            mBadges = Arrays.copyOf(mBadges, length);
+            mBadgeTexts = Arrays.copyOf(mBadgeTexts, length);
+            mBadgeWidths = Arrays.copyOf(mBadgeWidths, length);
+        }
+        final int previous = mBadges[position];
+        if (previous == badge) {
+            return;
+        }
+
+        mBadges[position] = badge;
+        if (previous == BADGE_NONE) {
+            mBadgeCount++;
+        } else if (badge == BADGE_NONE) {
+            mBadgeCount--;
+        }
+        if (badge > 0) {
+            final String text = badge > MAX_BADGE_COUNT
+                    ? MAX_BADGE_COUNT + "+"
+                    : Integer.toString(badge);
+            mBadgeTexts[position] = text;
+            mBadgeWidths[position] = Math.max(mBadgeHeight,
+                    (int) mBadgeTextPaint.measureText(text) + mBadgeMargin * 2);
+        } else {
+            mBadgeTexts[position] = null;
+        }
+
+        if (position < mGeometry.getTabCount()) {
+            final int left = mGeometry.getTabLeft(position);
+            invalidate(left, 0, left + mGeometry.getTabWidth(position), getHeight());
+        }
+    }
+
+    /**
+     * Move the badges with their tabs when the tabs are updated: the tab at each position takes
+     * the badge of the tab at {@code oldPositions[position]}, and has none if that is -1. Badges of
+     * tabs that are gone are dropped.
+     */
+    void moveBadges(int[] oldPositions) {
+        if (mBadgeCount == 0) {
+            return;
+        }
+        final int[] badges = new int[oldPositions.length];
+        final String[] badgeTexts = new String[oldPositions.length];
+        final int[] badgeWidths = new int[oldPositions.length];
+        int badgeCount = 0;
+        for (int i = 0; i < oldPositions.length; i++) {
+            final int oldPosition = oldPositions[i];
+            if (oldPosition >= 0 && oldPosition < mBadges.length
+                    && mBadges[oldPosition] != BADGE_NONE) {
+                badges[i] = mBadges[oldPosition];
+                badgeTexts[i] = mBadgeTexts[oldPosition];
+                badgeWidths[i] = mBadgeWidths[oldPosition];
+                badgeCount++;
+            }
+        }
+        mBadges = badges;
+        mBadgeTexts = badgeTexts;
+        mBadgeWidths = badgeWidths;
+        mBadgeCount = badgeCount;
+        invalidate();
+    }
+
+    /**
+     * Remove every badge at once.
+     */
+    void clearBadges() {
+        if (mBadgeCount == 0) {
+            return;
+        }
+        Arrays.fill(mBadges, BADGE_NONE);
+        Arrays.fill(mBadgeTexts, null);
+        mBadgeCount = 0;
+        invalidate();
+    }
+
+    int getBadge(int position) {
+        return position < mBadges.length ? mBadges[position] : BADGE_NONE;
+    }
+
+    void setBadgeColors(int backgroundColor, int textColor) {
+        mBadgePaint.setColor(backgroundColor);
+        mBadgeTextPaint.setColor(textColor);
+        if (mBadgeCount > 0) {
+            invalidate();
+        }
+    }
+
+    void setOnTabClickListener(OnTabClickListener listener) {
+        mOnTabClickListener = listener;
+    }
+
+    /**
+     * @return the position of the tab at {@code x}, as of the last layout, or -1 if there is none.
+     */
+    int findTabAt(float x) {
+        if (x < 0 || x >= mGeometry.getContentWidth()) {
+            return -1;
+        }
+        return mGeometry.findTabAt((int) x);
+    }
+
     @Override
-    protected void onDraw(Canvas canvas) {
-        final int height = getHeight();
-        final int childCount = getChildCount();
-        final int dividerHeightPx = (int) (Math.min(Math.max(0f, DEFAULT_DIVIDER_HEIGHT), 1f) * height);
-        final SlidingTabLayout.TabColorizer tabColorizer = mCustomTabColorizer != null
-                ? mCustomTabColorizer
-                : mDefaultTabColorizer;
-        // Thick colored underline below the current selection
-        if (childCount > 0) {
-            View selectedTitle = getChildAt(mSelectedPosition);
-
-            TextView textView = (TextView) selectedTitle;
-            mTextPaint.setTextSize(textView.getTextSize());
-            int textWidth = (int) mTextPaint.measureText(textView.getText().toString());
-            int textViewWidth = textView.getRight() - textView.getLeft();
-            int left = textView.getLeft() + (textViewWidth - textWidth) / 2;
-            int right = left + textWidth;
-            int color = tabColorizer.getIndicatorColor(mSelectedPosition);
-
-            if (mSelectionOffset > 0f && mSelectedPosition < (getChildCount() - 1)) {
-                int nextColor = tabColorizer.getIndicatorColor(mSelectedPosition + 1);
-                if (color != nextColor) {
-                    color = blendColors(nextColor, color, mSelectionOffset);
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return mFlatAccessibility != null && mFlatAccessibility.dispatchHoverEvent(event)
+                || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!mFlat) {
+            return super.onTouchEvent(event);
+        }
+
+        // A tab is clicked when the touch goes down and up on it; the enclosing scroll view
+        // cancels the touch once it turns into a drag
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mTouchedPosition = findTabAt(event.getX());
+                return mTouchedPosition >= 0;
+            case MotionEvent.ACTION_UP:
+                if (mTouchedPosition >= 0 && mTouchedPosition == findTabAt(event.getX())
+                        && mOnTabClickListener != null) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    mOnTabClickListener.onTabClick(mTouchedPosition);
+                    mFlatAccessibility.sendEventForVirtualView(mTouchedPosition,
+                            AccessibilityEvent.TYPE_VIEW_CLICKED);
                 }
+                mTouchedPosition = -1;
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                mTouchedPosition = -1;
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Set the part of the strip visible in the enclosing scroll view.
+     */
+    void setViewport(int left, int width) {
+        mViewportLeft = left;
+        mViewportWidth = width;
+        if (mVirtualized) {
+            fillVirtualWindow();
+        }
+    }
+
+    /**
+     * Give every tab an equal share of the strip's width, which is then measured to fill its
+     * parent. Ignored while virtualized.
+     */
+    void setEvenSplit(boolean evenSplit) {
+        if (mEvenSplit != evenSplit) {
+            mEvenSplit = evenSplit;
+            requestLayout();
+        }
+    }
+
+    boolean isEvenSplit() {
+        return mEvenSplit && !mVirtualized && !mFlat;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (!mVirtualized && !mFlat) {
+            if (isEvenSplit() && MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED
+                    && getChildCount() > 0) {
+                measureEvenSplit(widthMeasureSpec, heightMeasureSpec);
+            } else {
+                super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            }
+            return;
+        }
+
+        setMeasuredDimension(
+                resolveSize(Math.max(mGeometry.getContentWidth(), getSuggestedMinimumWidth()), widthMeasureSpec),
+                resolveSize(Math.max(mVirtualTabHeight, getSuggestedMinimumHeight()), heightMeasureSpec));
+
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            measureVirtualTabView(getChildAt(i), mFirstAttachedPosition + i);
+        }
+    }
 
-                // Draw the selection partway between the tabs
-                View nextTitle = getChildAt(mSelectedPosition + 1);
-                TextView nextTextView = (TextView) nextTitle;
-                int nextTextWidth = (int) mTextPaint.measureText(textView.getText().toString());
+    /**
+     * Measure each tab at exactly its share of the available width, spreading the remainder over
+     * the tabs, instead of measuring it wrapped and stretching it. Tabs matching the strip's height
+     * are only measured again if the strip turns out taller than they are.
+     */
+    private void measureEvenSplit(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = MeasureSpec.getSize(widthMeasureSpec);
+        final int available = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+        final int verticalPadding = getPaddingTop() + getPaddingBottom();
+        final int childCount = getChildCount();
 
-                int nextTextViewWidth = nextTextView.getRight() - nextTextView.getLeft();
-                int nextLeft = (nextTextViewWidth - nextTextWidth) / 2 + nextTextView.getLeft();
-                int nextRight = nextLeft + nextTextWidth;
+        int childLeft = 0;
+        int contentHeight = 0;
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            final int childRight = (int) ((long) available * (i + 1) / childCount);
+            final int childWidth = Math.max(0,
+                    childRight - childLeft - lp.leftMargin - lp.rightMargin);
+            child.measure(MeasureSpec.makeMeasureSpec(childWidth, MeasureSpec.EXACTLY),
+                    getChildMeasureSpec(heightMeasureSpec,
+                            verticalPadding + lp.topMargin + lp.bottomMargin, lp.height));
+            contentHeight = Math.max(contentHeight,
+                    child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
+            childLeft = childRight;
+        }
 
+        final int height = resolveSize(
+                Math.max(contentHeight + verticalPadding, getSuggestedMinimumHeight()),
+                heightMeasureSpec);
+        setMeasuredDimension(width, height);
+
+        final int childHeightSpace = height - verticalPadding;
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            final int childHeight = childHeightSpace - lp.topMargin - lp.bottomMargin;
+            if (lp.height == LayoutParams.MATCH_PARENT && child.getMeasuredHeight() != childHeight) {
+                child.measure(MeasureSpec.makeMeasureSpec(child.getMeasuredWidth(), MeasureSpec.EXACTLY),
+                        MeasureSpec.makeMeasureSpec(Math.max(0, childHeight), MeasureSpec.EXACTLY));
+            }
+        }
+    }
 
-                left = (int) (mSelectionOffset * nextLeft +
-                        (1.0f - mSelectionOffset) * left);
-                right = (int) (mSelectionOffset * nextRight +
-                        (1.0f - mSelectionOffset) * right);
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if (mVirtualized) {
+            final int childCount = getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                layoutVirtualTabView(getChildAt(i), mFirstAttachedPosition + i);
             }
+            fillVirtualWindow();
+        } else if (!mFlat) {
+            super.onLayout(changed, l, t, r, b);
+            updateTitleWidths();
+            updateTabGeometry();
+        }
 
+        if (mIndicatorLayer != null) {
+            layoutIndicatorLayer();
+        }
+    }
 
-            mSelectedIndicatorPaint.setColor(color);
-            canvas.drawRect(left - mErrorDips,
-                    height - mSelectedIndicatorThickness - mBottomBorderThickness,
-                    right - mErrorDips,
-                    height,
-                    mSelectedIndicatorPaint);
+    /**
+     * Attach the tabs in and around the viewport and recycle the ones that left it. Attached tabs
+     * always cover a contiguous range of positions starting at {@link #mFirstAttachedPosition}.
+     */
+    private void fillVirtualWindow() {
+        final int tabCount = mGeometry.getTabCount();
+        if (tabCount == 0 || getMeasuredHeight() == 0 || mTabViewBinder == null) {
+            return;
+        }
 
+        final int first = Math.max(0, mGeometry.findTabAt(mViewportLeft) - VIRTUAL_WINDOW_MARGIN);
+        final int last = Math.min(tabCount - 1,
+                mGeometry.findTabAt(mViewportLeft + mViewportWidth) + VIRTUAL_WINDOW_MARGIN);
+        boolean changed = false;
 
+        while (getChildCount() > 0 && mFirstAttachedPosition < first) {
+            recycleTabView(getChildAt(0));
+            mFirstAttachedPosition++;
+            changed = true;
+        }
+        while (getChildCount() > 0 && mFirstAttachedPosition + getChildCount() - 1 > last) {
+            recycleTabView(getChildAt(getChildCount() - 1));
+            changed = true;
+        }
+        if (getChildCount() == 0) {
+            mFirstAttachedPosition = first;
+        }
+
+        while (mFirstAttachedPosition > first) {
+            mFirstAttachedPosition--;
+            attachTabView(mFirstAttachedPosition, 0);
+            changed = true;
+        }
+        while (mFirstAttachedPosition + getChildCount() - 1 < last) {
+            attachTabView(mFirstAttachedPosition + getChildCount(), -1);
+            changed = true;
+        }
+
+        if (changed) {
+            invalidate();
+        }
+    }
+
+    private void attachTabView(int position, int index) {
+        View tabView = takeScrapView();
+        if (tabView == null) {
+            tabView = mTabViewBinder.createTabView();
+        }
+        ViewGroup.LayoutParams params = tabView.getLayoutParams();
+        TabLayoutParams tabParams = params instanceof TabLayoutParams
+                ? (TabLayoutParams) params
+                : new TabLayoutParams(position);
+        tabParams.position = position;
+
+        mTabViewBinder.bindTabView(tabView, position);
+        addViewInLayout(tabView, index, tabParams, true);
+        measureVirtualTabView(tabView, position);
+        layoutVirtualTabView(tabView, position);
+    }
+
+    private void recycleTabView(View tabView) {
+        removeViewInLayout(tabView);
+        mScrapViews.add(tabView);
+    }
+
+    private void recycleAllTabViews() {
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            recycleTabView(getChildAt(i));
+        }
+        mFirstAttachedPosition = 0;
+    }
+
+    private void measureVirtualTabView(View tabView, int position) {
+        tabView.measure(MeasureSpec.makeMeasureSpec(mGeometry.getTabWidth(position), MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(getMeasuredHeight(), MeasureSpec.EXACTLY));
+    }
+
+    private void layoutVirtualTabView(View tabView, int position) {
+        final int left = mGeometry.getTabLeft(position);
+        tabView.layout(left, 0, left + mGeometry.getTabWidth(position), getMeasuredHeight());
+    }
+
+    /**
+     * @return the scroll target of the tab at {@code position}, i.e. its left edge in the strip.
+     */
+    int getTabLeft(int position) {
+        return mGeometry.getTabLeft(position);
+    }
+
+    int getTabWidth(int position) {
+        return mGeometry.getTabWidth(position);
+    }
+
+    int getTitleWidth(int position) {
+        return mGeometry.getTitleWidth(position);
+    }
+
+    /**
+     * Rebuild the indicator edges and scroll targets of every tab, so that drawing and scrolling
+     * during a swipe only need array lookups.
+     */
+    private void updateTabGeometry() {
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View tabView = getChildAt(i);
+            mGeometry.setTab(i, tabView.getLeft(), tabView.getRight() - tabView.getLeft());
+        }
+        mGeometry.updateIndicatorEdges(mErrorDips);
+    }
+
+    /**
+     * @return the width of the (transformed) title text of {@code titleView}.
+     */
+    static int measureTitleWidth(TextView titleView) {
+        CharSequence text = titleView.getText();
+        TransformationMethod transformation = titleView.getTransformationMethod();
+        CharSequence displayText = transformation != null
+                ? transformation.getTransformation(text, titleView)
+                : text;
+        return (int) titleView.getPaint().measureText(displayText, 0, displayText.length());
+    }
+
+    /**
+     * @return the width of the title of the tab at {@code position}, precomputed if possible.
+     */
+    int measureTitleWidth(int position, TextView titleView) {
+        final int width = mPrecomputedTitles != null
+                ? mPrecomputedTitles.getTitleWidth(position, titleView)
+                : -1;
+        if (width >= 0) {
+            return width;
+        }
+        if (mRestoredTitles != null && position < mRestoredTitles.length
+                && TextUtils.equals(mRestoredTitles[position], titleView.getText())) {
+            return mRestoredTitleWidths[position];
+        }
+        return measureTitleWidth(titleView);
+    }
+
+    /**
+     * Take the title widths of tabs showing {@code titles} from {@code titleWidths} the next time
+     * the tab views are laid out, instead of measuring them.
+     */
+    void setRestoredTitleWidths(String[] titles, int[] titleWidths) {
+        mRestoredTitles = titles;
+        mRestoredTitleWidths = titleWidths;
+    }
+
+    /**
+     * Measure the title of each tab, re-using the cached width unless the title's text, text size,
+     * typeface or transformation (all caps) has changed since it was last measured.
+     */
+    private void updateTitleWidths() {
+        final int childCount = getChildCount();
+        mGeometry.setTabCount(childCount);
+        if (mMeasuredTitles.length != childCount) {
+            mMeasuredTitles = new CharSequence[childCount];
+            mMeasuredTextSizes = new float[childCount];
+            mMeasuredTypefaces = new Typeface[childCount];
+            mMeasuredTransformations = new TransformationMethod[childCount];
+        }
+
+        for (int i = 0; i < childCount; i++) {
+            TextView titleView = getTitleView(i);
+            if (titleView == null) {
+                mGeometry.setTitleWidth(i, 0);
+                mMeasuredTitles[i] = null;
+                continue;
+            }
+
+            CharSequence text = titleView.getText();
+            float textSize = titleView.getTextSize();
+            Typeface typeface = titleView.getTypeface();
+            TransformationMethod transformation = titleView.getTransformationMethod();
+            if (text == mMeasuredTitles[i] && textSize == mMeasuredTextSizes[i]
+                    && typeface == mMeasuredTypefaces[i]
+                    && transformation == mMeasuredTransformations[i]) {
+                continue;
+            }
+
+            mGeometry.setTitleWidth(i, measureTitleWidth(i, titleView));
+            mMeasuredTitles[i] = text;
+            mMeasuredTextSizes[i] = textSize;
+            mMeasuredTypefaces[i] = typeface;
+            mMeasuredTransformations[i] = transformation;
+        }
+        if (mRestoredTitles != null && childCount >= mRestoredTitles.length) {
+            mRestoredTitles = null;
+            mRestoredTitleWidths = null;
+        }
+    }
+
+    /**
+     * When enabled, page scrolls only invalidate the band covering the old and new indicator
+     * positions instead of the whole strip. Tabs whose title color changes invalidate themselves.
+     */
+    void setIndicatorOnlyInvalidation(boolean indicatorOnlyInvalidation) {
+        mIndicatorOnlyInvalidation = indicatorOnlyInvalidation;
+    }
+
+    /**
+     * When enabled, the indicator is a separate view in the strip's overlay that is moved with
+     * translationX and scaleX, so that a page scroll does not redraw the strip at all. Requires
+     * API 18; on older releases the indicator keeps being drawn by the strip.
+     */
+    void setIndicatorLayer(boolean indicatorLayer) {
+        if (indicatorLayer == (mIndicatorLayer != null)
+                || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return;
+        }
+
+        if (indicatorLayer) {
+            mIndicatorLayer = new View(getContext());
+            mIndicatorLayer.setPivotX(0);
+            getOverlay().add(mIndicatorLayer);
+            layoutIndicatorLayer();
+        } else {
+            getOverlay().remove(mIndicatorLayer);
+            mIndicatorLayer = null;
+        }
+        invalidate();
+    }
+
+    private void layoutIndicatorLayer() {
+        final int bottom = getHeight() - mBottomBorderThickness;
+        mIndicatorLayer.layout(0, bottom - mSelectedIndicatorThickness, INDICATOR_LAYER_WIDTH, bottom);
+        updateIndicatorLayer();
+    }
+
+    private void updateIndicatorLayer() {
+        if (!usesIndicatorLayer()
+                || !mGeometry.interpolateIndicator(mSelectedPosition, mTargetPosition, mSelectionOffset)) {
+            mIndicatorLayer.setVisibility(INVISIBLE);
+            return;
+        }
+
+        final int indicatorLeft = mGeometry.getIndicatorLeft();
+        mIndicatorLayer.setVisibility(VISIBLE);
+        mIndicatorLayer.setTranslationX(indicatorLeft);
+        mIndicatorLayer.setScaleX((mGeometry.getIndicatorRight() - indicatorLeft)
+                / (float) INDICATOR_LAYER_WIDTH);
+        mIndicatorLayer.setBackgroundColor(getIndicatorColor());
+    }
+
+    void onViewPagerPageChanged(int position, float positionOffset) {
+        setSelection(position, position + 1, positionOffset);
+    }
+
+    /**
+     * Move the indicator {@code fraction} of the way from the tab at {@code fromPosition} straight
+     * to the one at {@code toPosition}, however far apart they are.
+     */
+    void onTabJumpProgress(int fromPosition, int toPosition, float fraction) {
+        setSelection(fromPosition, toPosition, fraction);
+    }
+
+    private void setSelection(int position, int targetPosition, float fraction) {
+        mSelectedPosition = position;
+        mTargetPosition = targetPosition;
+        mSelectionOffset = fraction;
+        if (usesIndicatorLayer()) {
+            updateIndicatorLayer();
+            return;
+        }
+        if (!mIndicatorOnlyInvalidation) {
+            invalidate();
+            return;
+        }
+
+        final int previousLeft = mGeometry.getIndicatorLeft();
+        final int previousRight = mGeometry.getIndicatorRight();
+        mGeometry.interpolateIndicator(mSelectedPosition, mTargetPosition, mSelectionOffset);
+
+        final int height = getHeight();
+        invalidate(Math.min(previousLeft, mGeometry.getIndicatorLeft()),
+                height - mSelectedIndicatorThickness - mBottomBorderThickness,
+                Math.max(previousRight, mGeometry.getIndicatorRight()),
+                height);
+    }
+
+    private void drawIndicator(Canvas canvas, int height) {
+        final int left = mGeometry.getIndicatorLeft();
+        final int right = mGeometry.getIndicatorRight();
+        final int top = height - mSelectedIndicatorThickness - mBottomBorderThickness;
+        final int bottom;
+        final float radius;
+        if (mIndicatorShape == SlidingTabLayout.INDICATOR_SHAPE_RECT) {
+            bottom = height;
+            radius = 0f;
+        } else {
+            // Rounded shapes stop above the bottom border, which would cut their lower corners
+            bottom = height - mBottomBorderThickness;
+            radius = mIndicatorShape == SlidingTabLayout.INDICATOR_SHAPE_PILL
+                    || mIndicatorCornerRadius < 0f
+                    ? (bottom - top) / 2f
+                    : mIndicatorCornerRadius;
+        }
+
+        if (mIndicatorGradient == null) {
+            mSelectedIndicatorPaint.setColor(getIndicatorColor());
+            drawIndicatorShape(canvas, left, top, right, bottom, radius, radius);
+            return;
+        }
+        if (right <= left) {
+            return;
+        }
+        // Rather than changing the gradient's local matrix every frame, which makes recent
+        // releases rebuild the shader, draw where the indicator spans 0 to 1 like the gradient.
+        // The corners are narrowed by the same factor, so that they are round once stretched.
+        final float width = right - left;
+        // The shader ignores the paint's color but not its alpha
+        mSelectedIndicatorPaint.setColor(Color.BLACK);
+        final int saveCount = canvas.save();
+        canvas.translate(left, 0f);
+        canvas.scale(width, 1f);
+        drawIndicatorShape(canvas, 0f, top, 1f, bottom, radius / width, radius);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private void drawIndicatorShape(Canvas canvas, float left, float top, float right,
+                                    float bottom, float radiusX, float radiusY) {
+        if (mIndicatorShape == SlidingTabLayout.INDICATOR_SHAPE_RECT) {
+            canvas.drawRect(left, top, right, bottom, mSelectedIndicatorPaint);
+        } else {
+            mIndicatorRect.set(left, top, right, bottom);
+            canvas.drawRoundRect(mIndicatorRect, radiusX, radiusY, mSelectedIndicatorPaint);
+        }
+    }
+
+    // Every invalidation is counted, whether it comes from the strip or from the framework
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        countInvalidation();
+    }
+
+    @Override
+    public void invalidate(int l, int t, int r, int b) {
+        super.invalidate(l, t, r, b);
+        countInvalidation();
+    }
+
+    @Override
+    public void invalidate(Rect dirty) {
+        super.invalidate(dirty);
+        countInvalidation();
+    }
+
+    private void countInvalidation() {
+        if (mMetrics != null) {
+            mMetrics.count(SlidingTabLayout.MetricsListener.COUNT_INVALIDATION);
+        }
+    }
+
+    private int getIndicatorColor() {
+        final SlidingTabLayout.TabColorizer tabColorizer = getTabColorizer();
+        int color = tabColorizer.getIndicatorColor(mSelectedPosition);
+        if (mSelectionOffset > 0f && mTargetPosition >= 0
+                && mTargetPosition < mGeometry.getTabCount()) {
+            int nextColor = tabColorizer.getIndicatorColor(mTargetPosition);
+            if (color != nextColor) {
+                color = TabColors.blendColors(nextColor, color, mSelectionOffset);
+            }
+        }
+        return color;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        final TabMetrics metrics = mMetrics;
+        final long start = metrics != null
+                ? metrics.beginSpan(SlidingTabLayout.MetricsListener.SPAN_DRAW)
+                : 0;
+        super.draw(canvas);
+        if (metrics != null) {
+            metrics.endSpan(SlidingTabLayout.MetricsListener.SPAN_DRAW, start);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final int height = getHeight();
+        final int childCount = getTabCount();
+        final int dividerHeightPx = (int) (Math.min(Math.max(0f, DEFAULT_DIVIDER_HEIGHT), 1f) * height);
+        final SlidingTabLayout.TabColorizer tabColorizer = getTabColorizer();
+        // Thick colored underline below the current selection, unless it has its own layer
+        if (childCount > 0 && !usesIndicatorLayer()
+                && mGeometry.interpolateIndicator(mSelectedPosition, mTargetPosition, mSelectionOffset)) {
+            drawIndicator(canvas, height);
         }
 
         // Thin underline along the entire bottom edge
         canvas.drawRect(0, height - mBottomBorderThickness, getWidth(), height, mBottomBorderPaint);
 
+        if (mFlat) {
+            drawFlatTabs(canvas, height, dividerHeightPx, tabColorizer);
+            return;
+        }
+
         if (!mShowAsDivider) return;
         // Vertical separators between the titles
         int separatorTop = (height - dividerHeightPx) / 2;
-        for (int i = 0; i < childCount - 1; i++) {
+        for (int i = 0; i < getChildCount(); i++) {
             View child = getChildAt(i);
-            mDividerPaint.setColor(tabColorizer.getDividerColor(i));
+            int position = getTabPosition(child);
+            if (position >= childCount - 1) {
+                continue;
+            }
+            mDividerPaint.setColor(tabColorizer.getDividerColor(position));
             canvas.drawLine(child.getRight(), separatorTop, child.getRight(),
                     separatorTop + dividerHeightPx, mDividerPaint);
         }
     }
 
     /**
-     * Set the alpha value of the {@code color} to be the given {@code alpha} value.
+     * Draw the titles, and separators if shown, of the tabs in the viewport, centered in their
+     * tabs like the default tab views center them.
      */
-    private static int setColorAlpha(int color, byte alpha) {
-        return Color.argb(alpha, Color.red(color), Color.green(color), Color.blue(color));
+    private void drawFlatTabs(Canvas canvas, int height, int dividerHeightPx,
+                              SlidingTabLayout.TabColorizer tabColorizer) {
+        final int tabCount = mGeometry.getTabCount();
+        if (tabCount == 0) {
+            return;
+        }
+
+        int first = 0;
+        int last = tabCount - 1;
+        if (mViewportWidth > 0) {
+            first = mGeometry.findTabAt(mViewportLeft);
+            last = Math.min(last, mGeometry.findTabAt(mViewportLeft + mViewportWidth));
+        }
+
+        final TextPaint paint = mFlatTitlePaint;
+        final Paint.FontMetricsInt fontMetrics = mFlatFontMetrics;
+        final int baseline = (height - (fontMetrics.descent - fontMetrics.ascent)) / 2
+                - fontMetrics.ascent;
+        final int separatorTop = (height - dividerHeightPx) / 2;
+        for (int i = first; i <= last; i++) {
+            final int left = mGeometry.getTabLeft(i);
+            final int tabWidth = mGeometry.getTabWidth(i);
+            final String title = mFlatTitles[i];
+            paint.setColor(getTitleColor(i, mFlatTitleFractions[i]));
+            canvas.drawText(title, 0, title.length(),
+                    left + (tabWidth - mGeometry.getTitleWidth(i)) / 2, baseline, paint);
+
+            if (mShowAsDivider && i < tabCount - 1) {
+                mDividerPaint.setColor(tabColorizer.getDividerColor(i));
+                canvas.drawLine(left + tabWidth, separatorTop, left + tabWidth,
+                        separatorTop + dividerHeightPx, mDividerPaint);
+            }
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        // Over the tab views
+        if (mBadgeCount > 0) {
+            drawBadges(canvas);
+        }
     }
 
     /**
-     * Blend {@code color1} and {@code color2} using the given ratio.
-     *
-     * @param ratio of which to blend. 1.0 will return {@code color1}, 0.5 will give an even blend,
-     *              0.0 will return {@code color2}.
+     * Draw the badges of the tabs in the viewport, right of their titles and clipped to their tabs.
      */
-    private static int blendColors(int color1, int color2, float ratio) {
-        final float inverseRation = 1f - ratio;
-        float r = (Color.red(color1) * ratio) + (Color.red(color2) * inverseRation);
-        float g = (Color.green(color1) * ratio) + (Color.green(color2) * inverseRation);
-        float b = (Color.blue(color1) * ratio) + (Color.blue(color2) * inverseRation);
-        return Color.rgb((int) r, (int) g, (int) b);
+    private void drawBadges(Canvas canvas) {
+        final int tabCount = Math.min(mGeometry.getTabCount(), mBadges.length);
+        if (tabCount == 0) {
+            return;
+        }
+
+        int first = 0;
+        int last = tabCount - 1;
+        if (mViewportWidth > 0) {
+            first = mGeometry.findTabAt(mViewportLeft);
+            last = Math.min(last, mGeometry.findTabAt(mViewportLeft + mViewportWidth));
+        }
+
+        for (int i = first; i <= last; i++) {
+            final int badge = mBadges[i];
+            if (badge == BADGE_NONE) {
+                continue;
+            }
+            final int tabLeft = mGeometry.getTabLeft(i);
+            final int tabRight = tabLeft + mGeometry.getTabWidth(i);
+            final int titleRight = tabLeft + (mGeometry.getTabWidth(i) + mGeometry.getTitleWidth(i)) / 2;
+            final int size = badge == BADGE_DOT ? mBadgeDotSize : mBadgeHeight;
+            final int width = badge == BADGE_DOT ? mBadgeDotSize : mBadgeWidths[i];
+            final int right = Math.min(titleRight + mBadgeMargin / 2 + width, tabRight);
+            mBadgeRect.set(right - width, mBadgeMargin, right, mBadgeMargin + size);
+            canvas.drawRoundRect(mBadgeRect, size / 2f, size / 2f, mBadgePaint);
+            if (badge > 0) {
+                final String text = mBadgeTexts[i];
+                final float baseline = mBadgeRect.centerY()
+                        - (mBadgeTextPaint.ascent() + mBadgeTextPaint.descent()) / 2;
+                canvas.drawText(text, 0, text.length(), mBadgeRect.centerX(), baseline,
+                        mBadgeTextPaint);
+            }
+        }
     }
 
+    /**
+     * Exposes the titles of a flat strip to accessibility services as one virtual view per tab,
+     * standing in for the tab views the strip doesn't have.
+     */
+    private class FlatTabsAccessibility extends ExploreByTouchHelper {
+        private final Rect mTabBounds = new Rect();
+
+        FlatTabsAccessibility() {
+            super(SlidingTabStrip.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            final int position = findTabAt(x);
+            return position >= 0 ? position : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            final int tabCount = Math.min(mGeometry.getTabCount(), mFlatTitles.length);
+            if (tabCount == 0) {
+                return;
+            }
+
+            // The tabs in the viewport, as drawn
+            int first = 0;
+            int last = tabCount - 1;
+            if (mViewportWidth > 0) {
+                first = mGeometry.findTabAt(mViewportLeft);
+                last = Math.min(last, mGeometry.findTabAt(mViewportLeft + mViewportWidth));
+            }
+            for (int i = first; i <= last; i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId,
+                                                    AccessibilityNodeInfoCompat node) {
+            // A tab removed since the service asked for it still needs text and bounds
+            if (virtualViewId >= mFlatTitles.length) {
+                node.setContentDescription("");
+                mTabBounds.setEmpty();
+                node.setBoundsInParent(mTabBounds);
+                return;
+            }
+            final int left = mGeometry.getTabLeft(virtualViewId);
+            mTabBounds.set(left, 0, left + mGeometry.getTabWidth(virtualViewId), getHeight());
+            node.setBoundsInParent(mTabBounds);
+            node.setText(mFlatTitles[virtualViewId]);
+            node.setClassName(TextView.class.getName());
+            node.setSelected(mFlatTitleFractions[virtualViewId] == 1f);
+            node.setClickable(true);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action,
+                                                        Bundle arguments) {
+            if (action != AccessibilityNodeInfoCompat.ACTION_CLICK
+                    || virtualViewId >= mFlatTitles.length || mOnTabClickListener == null) {
+                return false;
+            }
+            mOnTabClickListener.onTabClick(virtualViewId);
+            sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+            return true;
+        }
+    }
 
     private static class SimpleTabColorizer implements SlidingTabLayout.TabColorizer {
         private int[] mIndicatorColors;
@@ -259,22 +1471,22 @@ class SlidingTabStrip extends LinearLayout {
 
         @Override
         public final int getIndicatorColor(int position) {
-            return mIndicatorColors[position % mIndicatorColors.length];
+            return TabColors.colorAt(mIndicatorColors, position);
         }
 
         @Override
         public final int getDividerColor(int position) {
-            return mDividerColors[position % mDividerColors.length];
+            return TabColors.colorAt(mDividerColors, position);
         }
 
         @Override
         public int getSelectedColor(int position) {
-            return mTitleSelectedColors[position % mTitleSelectedColors.length];
+            return TabColors.colorAt(mTitleSelectedColors, position);
         }
 
         @Override
         public int getUnselectedTitleColors(int position) {
-            return mTitleUnselectedTitleColors[position % mTitleUnselectedTitleColors.length];
+            return TabColors.colorAt(mTitleUnselectedTitleColors, position);
         }
 
 
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 achenging
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.achenging.view;
+
+import android.support.v4.os.TraceCompat;
+
+/**
+ * Times the spans and counts the events of a tab layout for its
+ * {@link SlidingTabLayout.MetricsListener}, and marks each span as a trace section. Only exists
+ * while a listener is installed; callers check for null, so that uninstrumented tab layouts do no
+ * more than that check.
+ */
+final class TabMetrics {
+
+    // Trace section names, indexed by span
+    private static final String[] SECTION_NAMES = {
+            "SlidingTabLayout#populateTabStrip",
+            "SlidingTabStrip#draw",
+            "SlidingTabLayout#onPageScrolled",
+            "SlidingTabLayout#scrollToTab"};
+
+    private final SlidingTabLayout.MetricsListener mListener;
+
+    TabMetrics(SlidingTabLayout.MetricsListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @return the start time of the span, to be passed to {@link #endSpan(int, long)}.
+     */
+    long beginSpan(int span) {
+        TraceCompat.beginSection(SECTION_NAMES[span]);
+        return System.nanoTime();
+    }
+
+    void endSpan(int span, long startNanos) {
+        final long durationNanos = System.nanoTime() - startNanos;
+        TraceCompat.endSection();
+        mListener.onSpan(span, durationNanos);
+    }
+
+    void count(int counter) {
+        mListener.onCount(counter);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 achenging
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.achenging.view;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Theme attributes and {@code SlidingTabLayout} styles resolved once per theme and shared by every
+ * tab layout, tab strip and default tab view of the process, so that tab layouts in list rows or
+ * repeated fragments do not resolve the same theme over and over.
+ * <p>
+ * Entries are kept as long as their theme is, and resolved again when the configuration of its
+ * resources changes. A theme changed with {@link Resources.Theme#applyStyle(int, boolean)} after
+ * its first tab layout was created keeps its earlier entry.
+ */
+final class TabStyleCache {
+
+    private static final WeakHashMap<Resources.Theme, TabStyleCache> sCaches
+            = new WeakHashMap<Resources.Theme, TabStyleCache>();
+
+    private final Configuration                mConfiguration;
+    private final int                          mForegroundColor;
+    private final int                          mSelectableItemBackground;
+    // Layout styles by the style and SlidingTabLayout attributes they were resolved from
+    private final HashMap<String, LayoutStyle> mLayoutStyles = new HashMap<String, LayoutStyle>();
+
+    /**
+     * The attributes of a {@code SlidingTabLayout}, as resolved by its constructor.
+     */
+    static final class LayoutStyle {
+        final int     selectedTextColor;
+        final int     textColor;
+        final int     indicatorThickness;
+        final int     indicatorColor;
+        final int     dividerThickness;
+        final int     dividerColor;
+        final int     bottomBorderThickness;
+        final int     bottomBorderColor;
+        final boolean showAsDivider;
+
+        LayoutStyle(TypedArray a, int defaultIndicatorThickness, int defaultIndicatorColor,
+                    int defaultDividerThickness, int defaultBottomBorderThickness,
+                    int defaultBackgroundColor) {
+            selectedTextColor = a.getColor(R.styleable.SlidingTabLayout_tabSelectedTextColor, 0);
+            textColor = a.getColor(R.styleable.SlidingTabLayout_tabTextColor, 0);
+            indicatorThickness = (int) a.getDimension(R.styleable.SlidingTabLayout_tabIndicatorThickness,
+                    defaultIndicatorThickness);
+            indicatorColor = a.getColor(R.styleable.SlidingTabLayout_tabIndicatorColor,
+                    defaultIndicatorColor);
+            dividerThickness = (int) a.getDimension(R.styleable.SlidingTabLayout_dividerThickness,
+                    defaultDividerThickness);
+            dividerColor = a.getColor(R.styleable.SlidingTabLayout_dividerColor,
+                    defaultBackgroundColor);
+            bottomBorderThickness = (int) a.getDimension(R.styleable.SlidingTabLayout_bottomBorderThickness,
+                    defaultBottomBorderThickness);
+            bottomBorderColor = a.getColor(R.styleable.SlidingTabLayout_bottomBorderColor,
+                    defaultBackgroundColor);
+            showAsDivider = a.getBoolean(R.styleable.SlidingTabLayout_showAsDivider, false);
+        }
+    }
+
+    private TabStyleCache(Context context) {
+        mConfiguration = new Configuration(context.getResources().getConfiguration());
+        final Resources.Theme theme = context.getTheme();
+        final TypedValue outValue = new TypedValue();
+        theme.resolveAttribute(android.R.attr.colorForeground, outValue, true);
+        mForegroundColor = outValue.data;
+        mSelectableItemBackground = theme.resolveAttribute(android.R.attr.selectableItemBackground,
+                outValue, true) ? outValue.resourceId : 0;
+    }
+
+    /**
+     * @return the cache of the theme of {@code context}.
+     */
+    static TabStyleCache get(Context context) {
+        final Resources.Theme theme = context.getTheme();
+        synchronized (sCaches) {
+            TabStyleCache cache = sCaches.get(theme);
+            if (cache == null
+                    || !cache.mConfiguration.equals(context.getResources().getConfiguration())) {
+                cache = new TabStyleCache(context);
+                sCaches.put(theme, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * @return the theme's {@code android:colorForeground}.
+     */
+    int getForegroundColor() {
+        return mForegroundColor;
+    }
+
+    /**
+     * @return the resource id of the theme's {@code android:selectableItemBackground}, or 0.
+     */
+    int getSelectableItemBackground() {
+        return mSelectableItemBackground;
+    }
+
+    /**
+     * @return the {@code SlidingTabLayout} attributes of {@code attrs} in this theme, resolved
+     * with the given defaults. Attribute sets with the same style and the same values for these
+     * attributes share an entry.
+     */
+    LayoutStyle getLayoutStyle(Context context, AttributeSet attrs, int defaultIndicatorThickness,
+                               int defaultIndicatorColor, int defaultDividerThickness,
+                               int defaultBottomBorderThickness, int defaultBackgroundColor) {
+        final String key = getKey(attrs) + defaultIndicatorThickness + '/' + defaultIndicatorColor
+                + '/' + defaultDividerThickness + '/' + defaultBottomBorderThickness
+                + '/' + defaultBackgroundColor;
+        synchronized (mLayoutStyles) {
+            LayoutStyle style = mLayoutStyles.get(key);
+            if (style == null) {
+                TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SlidingTabLayout);
+                style = new LayoutStyle(a, defaultIndicatorThickness, defaultIndicatorColor,
+                        defaultDividerThickness, defaultBottomBorderThickness,
+                        defaultBackgroundColor);
+                a.recycle();
+                mLayoutStyles.put(key, style);
+            }
+            return style;
+        }
+    }
+
+    /**
+     * @return the style of {@code attrs} and the raw values of its {@code SlidingTabLayout}
+     * attributes, which are all that the resolved attributes depend on besides the theme.
+     */
+    private static String getKey(AttributeSet attrs) {
+        if (attrs == null) {
+            return "/";
+        }
+        final StringBuilder key = new StringBuilder();
+        key.append(attrs.getStyleAttribute()).append('/');
+        final int[] styleable = R.styleable.SlidingTabLayout;
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            final int nameResource = attrs.getAttributeNameResource(i);
+            for (int attr : styleable) {
+                if (attr == nameResource) {
+                    key.append(nameResource).append('=').append(attrs.getAttributeValue(i)).append(';');
+                    break;
+                }
+            }
+        }
+        return key.append('/').toString();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 achenging
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.achenging.view;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Tab views left over by {@link SlidingTabLayout}s, for other tab layouts to reuse instead of
+ * creating new ones, much like a {@code RecyclerView.RecycledViewPool}. Share a pool between the
+ * tab layouts of list rows: when a row's tab layout is bound to another pager, its tab views go to
+ * the pool, and the tab layouts of other rows take them back with only their title, colors and
+ * click listener rebound.
+ * <p>
+ * Views are pooled by the custom tab view layout they were inflated from, or 0 for the default tab
+ * views. Default tab views are only reused by tab layouts of the class that created them, since
+ * subclasses may create them differently. The views keep the context they were created with, so
+ * only share a pool between tab layouts of the same activity. A pool must only be used on the UI
+ * thread.
+ *
+ * @see SlidingTabLayout#setTabViewPool(TabViewPool)
+ */
+public final class TabViewPool {
+
+    private static final int DEFAULT_MAX_RECYCLED_VIEWS = 32;
+
+    private final SparseArray<ArrayList<View>> mRecycledViews    = new SparseArray<ArrayList<View>>();
+    private final SparseIntArray               mMaxRecycledViews = new SparseIntArray();
+
+    /**
+     * Set how many views inflated from {@code layoutResId}, or 0 for default tab views, the pool
+     * keeps; 32 by default. Views recycled beyond that are dropped.
+     */
+    public void setMaxRecycledViews(int layoutResId, int max) {
+        mMaxRecycledViews.put(layoutResId, max);
+        final ArrayList<View> views = mRecycledViews.get(layoutResId);
+        if (views != null) {
+            while (views.size() > max) {
+                views.remove(views.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * @return the number of pooled views inflated from {@code layoutResId}, or 0 for default tab
+     * views.
+     */
+    public int getRecycledViewCount(int layoutResId) {
+        final ArrayList<View> views = mRecycledViews.get(layoutResId);
+        return views != null ? views.size() : 0;
+    }
+
+    /**
+     * Drop every pooled view.
+     */
+    public void clear() {
+        mRecycledViews.clear();
+    }
+
+    /**
+     * Record what {@code tabView} was created from: the {@link Integer} id of the layout it was
+     * inflated from, or the class of the tab layout that created it as a default tab view.
+     */
+    static void setOrigin(View tabView, Object origin) {
+        tabView.setTag(R.id.tab_view_origin, origin);
+    }
+
+    /**
+     * @return a pooled view created from {@code origin}, as recorded by
+     * {@link #setOrigin(View, Object)}, or null if there is none.
+     */
+    View getRecycledView(Object origin) {
+        final ArrayList<View> views = mRecycledViews.get(getLayoutResId(origin));
+        if (views != null) {
+            for (int i = views.size() - 1; i >= 0; i--) {
+                if (origin.equals(views.get(i).getTag(R.id.tab_view_origin))) {
+                    return views.remove(i);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keep {@code tabView}, no longer attached to a strip, with the views created from the same
+     * layout unless the pool is full for that layout. Views with no recorded origin are dropped.
+     */
+    void putRecycledView(View tabView) {
+        final Object origin = tabView.getTag(R.id.tab_view_origin);
+        if (origin == null) {
+            return;
+        }
+        final int layoutResId = getLayoutResId(origin);
+        ArrayList<View> views = mRecycledViews.get(layoutResId);
+        if (views == null) {
+            views = new ArrayList<View>();
+            mRecycledViews.put(layoutResId, views);
+        }
+        if (views.size() < mMaxRecycledViews.get(layoutResId, DEFAULT_MAX_RECYCLED_VIEWS)) {
+            views.add(tabView);
+        }
+    }
+
+    private static int getLayoutResId(Object origin) {
+        return origin instanceof Integer ? (Integer) origin : 0;
+    }
+}
@@ -0,0 +1,180 @@
+package com.achenging.view;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.text.TextPaint;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.accessibility.AccessibilityManager;
+
+import org.junit.runners.model.InitializationError;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.Resetter;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowPaint;
+
+import java.util.ArrayList;
+
+/**
+ * A Robolectric runner under which views really draw. Robolectric's shadow of
+ * {@code View.draw(Canvas)} only draws the background, which leaves nothing to measure, and its
+ * shadows of {@code View.invalidate()} and {@code View.scrollTo(int, int)} allocate on every call;
+ * under this runner {@link View} is not shadowed, so that the framework draws, invalidates and
+ * scrolls, and the scroll getters see every scroll. Fonts get a height, so that text layouts have
+ * lines to draw. It also keeps a single {@link AccessibilityManager}, as the framework does, so
+ * that scrolling a view does not build a new one, and holds {@link Choreographer} callbacks until
+ * the test runs a frame with {@link #doFrame()}, instead of posting a new message for each of them.
+ * <p>
+ * The shadows are added to every test's {@link Config}, like shadows listed in
+ * {@link Config#shadows()}. Every Robolectric test of this module runs with this runner: tests
+ * with other shadows would get a sandbox of their own, and Robolectric 3.3 fails to create proxies
+ * in a second sandbox.
+ */
+public class DrawingTestRunner extends RobolectricTestRunner {
+
+    public DrawingTestRunner(Class<?> testClass) throws InitializationError {
+        super(testClass);
+    }
+
+    @Override
+    protected Config buildGlobalConfig() {
+        return new Config.Builder(super.buildGlobalConfig())
+                .setShadows(new Class<?>[]{ShadowFrameworkView.class, ShadowMeasuringPaint.class,
+                        ShadowMeasuringTextPaint.class, ShadowSingletonAccessibilityManager.class,
+                        ShadowFrameChoreographer.class})
+                .build();
+    }
+
+    /**
+     * Run the callbacks posted to the main thread's {@link Choreographer} since the last frame, as
+     * the framework does at the start of a frame.
+     */
+    static void doFrame() {
+        ShadowFrameChoreographer.doFrame();
+    }
+
+    /**
+     * Replaces Robolectric's shadow of {@link View} with one that implements nothing, so that, as
+     * {@link Implements#callThroughByDefault()}, every method of {@link View} runs the framework's
+     * code.
+     */
+    @Implements(View.class)
+    public static class ShadowFrameworkView {
+    }
+
+    /**
+     * Robolectric's fonts have no height, which leaves text layouts without lines to draw. Here
+     * every font is {@link #FONT_HEIGHT} pixels tall: Robolectric does not copy the text size when
+     * a paint is set from another one, as text layouts do to draw, so the height cannot follow it.
+     */
+    @Implements(Paint.class)
+    public static class ShadowMeasuringPaint extends ShadowPaint {
+        static final int FONT_HEIGHT = 14;
+        static final int FONT_ASCENT = -11;
+
+        @Implementation
+        public float getFontMetrics(Paint.FontMetrics metrics) {
+            if (metrics != null) {
+                metrics.top = metrics.ascent = FONT_ASCENT;
+                metrics.bottom = metrics.descent = FONT_HEIGHT + FONT_ASCENT;
+                metrics.leading = 0f;
+            }
+            return FONT_HEIGHT;
+        }
+
+        @Implementation
+        public int getFontMetricsInt(Paint.FontMetricsInt metrics) {
+            if (metrics != null) {
+                metrics.top = metrics.ascent = FONT_ASCENT;
+                metrics.bottom = metrics.descent = FONT_HEIGHT + FONT_ASCENT;
+                metrics.leading = 0;
+            }
+            return FONT_HEIGHT;
+        }
+    }
+
+    /**
+     * Robolectric's shadow of {@link TextPaint} adds nothing to the one of {@link Paint}; it is
+     * replaced too, since every shadowed class needs a shadow extending the ones of its superclasses.
+     */
+    @Implements(TextPaint.class)
+    public static class ShadowMeasuringTextPaint extends ShadowMeasuringPaint {
+    }
+
+    /**
+     * Robolectric creates a new {@link AccessibilityManager}, with a new service behind it, every
+     * time {@link AccessibilityManager#getInstance} is called.
+     */
+    @Implements(AccessibilityManager.class)
+    public static class ShadowSingletonAccessibilityManager extends ShadowAccessibilityManager {
+        private static Object               sApplication;
+        private static AccessibilityManager sInstance;
+
+        @Implementation
+        public static AccessibilityManager getInstance(Context context) throws Exception {
+            if (sInstance == null || sApplication != RuntimeEnvironment.application) {
+                sInstance = ShadowAccessibilityManager.getInstance(context);
+                sApplication = RuntimeEnvironment.application;
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * Robolectric posts every {@link Choreographer} callback as a new message, where the framework
+     * keeps them in pooled queues until the next frame. Callbacks without a delay are queued here
+     * until {@link DrawingTestRunner#doFrame()}. The queue is shared by all instances, since
+     * Robolectric only holds on to the main thread's instance softly and may create a new one while
+     * views still post to the old one.
+     */
+    @Implements(Choreographer.class)
+    public static class ShadowFrameChoreographer extends ShadowChoreographer {
+        private static ArrayList<Runnable> sCallbacks = new ArrayList<Runnable>();
+        private static ArrayList<Runnable> sRunning   = new ArrayList<Runnable>();
+
+        @Implementation
+        @Override
+        public void postCallbackDelayed(int callbackType, Runnable action, Object token,
+                                        long delayMillis) {
+            if (delayMillis > 0) {
+                super.postCallbackDelayed(callbackType, action, token, delayMillis);
+            } else {
+                sCallbacks.add(action);
+            }
+        }
+
+        @Implementation
+        @Override
+        public void removeCallbacks(int callbackType, Runnable action, Object token) {
+            super.removeCallbacks(callbackType, action, token);
+            for (int i = sCallbacks.size() - 1; i >= 0; i--) {
+                if (sCallbacks.get(i) == action) {
+                    sCallbacks.remove(i);
+                }
+            }
+        }
+
+        static void doFrame() {
+            // Callbacks posted while running are left for the next frame
+            final ArrayList<Runnable> running = sCallbacks;
+            sCallbacks = sRunning;
+            sRunning = running;
+            for (int i = 0; i < running.size(); i++) {
+                running.get(i).run();
+            }
+            running.clear();
+        }
+
+        @Resetter
+        public static synchronized void reset() {
+            ShadowChoreographer.reset();
+            sCallbacks.clear();
+            sRunning.clear();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.achenging.view;
+
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutAdapterChangeTest {
+
+    private static final int TAB_COUNT = 50;
+    private static final int SELECTED  = 20;
+    // Past the tabs in the viewport, so that the edits move none of them
+    private static final int EDITED    = 30;
+
+    @Test
+    public void pageInserted_keepsTabViewsAndBadges() throws Exception {
+        List<String> titles = defaultTitles();
+        titles.add(EDITED, "Inserted");
+
+        assertTabsUpdated(defaultTitles(), titles);
+    }
+
+    @Test
+    public void pageRemoved_keepsTabViewsAndBadges() throws Exception {
+        List<String> titles = defaultTitles();
+        titles.remove(EDITED);
+
+        assertTabsUpdated(defaultTitles(), titles);
+    }
+
+    @Test
+    public void pagesReordered_keepsTabViewsAndBadges() throws Exception {
+        List<String> titles = defaultTitles();
+        Collections.swap(titles, EDITED, EDITED + 3);
+        titles.add(EDITED + 1, titles.remove(TAB_COUNT - 1));
+
+        assertTabsUpdated(defaultTitles(), titles);
+    }
+
+    @Test
+    public void duplicateTitles_areMatchedInOrder() throws Exception {
+        List<String> oldTitles = defaultTitles();
+        for (int i = EDITED; i < TAB_COUNT; i += 3) {
+            oldTitles.set(i, "Same");
+        }
+        List<String> titles = new ArrayList<String>(oldTitles);
+        titles.remove(EDITED + 3);
+        titles.add(EDITED + 1, "Same");
+
+        assertTabsUpdated(oldTitles, titles);
+    }
+
+    @Test
+    public void pagesReplaced_rebindsTabViews() throws Exception {
+        List<String> titles = new ArrayList<String>();
+        for (int i = 0; i < TAB_COUNT; i++) {
+            // As wide as the replaced titles, so that the tabs keep their place
+            titles.add("New " + i);
+        }
+
+        assertTabsUpdated(defaultTitles(), titles);
+    }
+
+    /**
+     * Show {@code oldTitles} with a badge on every tab, change the pages to {@code newTitles}, and
+     * assert that the tab views were reused, the selection and scroll position kept, and the badges
+     * moved with their tabs.
+     */
+    private static void assertTabsUpdated(List<String> oldTitles, List<String> newTitles) {
+        SwipeFrameHarness harness = new SwipeFrameHarness(0);
+        harness.setPageTitles(oldTitles);
+        harness.getViewPager().setCurrentItem(SELECTED);
+        harness.start();
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        for (int i = 0; i < oldTitles.size(); i++) {
+            tabLayout.setBadgeCount(i, i + 1);
+        }
+        harness.run(new SwipeScript().endFrame());
+
+        Set<View> oldViews = new HashSet<View>();
+        View[] oldViewsByPosition = new View[oldTitles.size()];
+        for (int i = 0; i < oldTitles.size(); i++) {
+            oldViewsByPosition[i] = tabStrip.getTabView(i);
+            oldViews.add(oldViewsByPosition[i]);
+        }
+        final int scrollX = tabLayout.getScrollX();
+        InflationCounter inflations = new InflationCounter();
+        tabLayout.setMetricsListener(inflations);
+
+        harness.setPageTitles(newTitles);
+        harness.run(new SwipeScript().endFrame());
+
+        assertEquals(Math.max(0, newTitles.size() - oldTitles.size()), inflations.mInflations);
+        assertEquals(newTitles.size(), tabStrip.getTabCount());
+        assertEquals(scrollX, tabLayout.getScrollX());
+
+        boolean[] matched = new boolean[oldTitles.size()];
+        Set<View> newViews = new HashSet<View>();
+        for (int i = 0; i < newTitles.size(); i++) {
+            String title = newTitles.get(i);
+            int oldPosition = findUnmatched(oldTitles, matched, title);
+            String where = "tab " + i + ", " + title;
+            View tabView = tabStrip.getTabView(i);
+            newViews.add(tabView);
+            assertEquals(where, title, tabStrip.getTitleView(i).getText().toString());
+            assertEquals(where, tabStrip.getTitleColor(i, i == SELECTED ? 1f : 0f),
+                    tabStrip.getTitleView(i).getCurrentTextColor());
+            if (oldPosition >= 0) {
+                matched[oldPosition] = true;
+                assertSame(where, oldViewsByPosition[oldPosition], tabView);
+                assertEquals(where, oldPosition + 1, tabStrip.getBadge(i));
+            } else {
+                assertEquals(where, SlidingTabStrip.BADGE_NONE, tabStrip.getBadge(i));
+            }
+        }
+        // Every view still shown is one of the old ones, rebound if its title went away
+        newViews.removeAll(oldViews);
+        assertEquals(inflations.mInflations, newViews.size());
+    }
+
+    /**
+     * @return the first position of {@code title} in {@code titles} not matched yet, or -1.
+     */
+    private static int findUnmatched(List<String> titles, boolean[] matched, String title) {
+        for (int i = 0; i < titles.size(); i++) {
+            if (!matched[i] && titles.get(i).equals(title)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the titles of the harness pages.
+     */
+    private static List<String> defaultTitles() {
+        List<String> titles = new ArrayList<String>();
+        for (int i = 0; i < TAB_COUNT; i++) {
+            titles.add("Tab " + i);
+        }
+        return titles;
+    }
+
+    private static class InflationCounter implements SlidingTabLayout.MetricsListener {
+        int mInflations;
+
+        @Override
+        public void onSpan(int span, long durationNanos) {
+        }
+
+        @Override
+        public void onCount(int counter) {
+            if (counter == COUNT_TAB_INFLATION) {
+                mInflations++;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.achenging.view;
+
+import android.support.v4.view.ViewPager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Guards the swipe path against heap allocations: once the tabs are laid out and every code path
+ * has run once, scrolling the pager back and forth must not allocate, so that swiping never
+ * triggers a garbage collection.
+ */
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutAllocationTest {
+
+    private static final int TAB_COUNT       = 50;
+    private static final int FRAMES_PER_PAGE = 18;
+    private static final int WARM_UP_SWIPES  = 10;
+    private static final int SWIPES          = 3;
+    // Until the JIT settles, compiling and relinking Robolectric's call sites allocates now and
+    // then, for longer on a slow machine: the swipes are measured again until they allocate nothing
+    private static final int MAX_WINDOWS     = 20;
+
+    @Test
+    public void swipe_allocatesNothing() throws Exception {
+        assertNoAllocation("default", new SwipeFrameHarness(TAB_COUNT));
+    }
+
+    @Test
+    public void swipeWithSmoothTitleColors_allocatesNothing() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.getTabLayout().setSmoothTitleColors(true);
+        assertNoAllocation("smooth title colors", harness);
+    }
+
+    @Test
+    public void swipeWithFrameCoalescing_allocatesNothing() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.getTabLayout().setFrameCoalescing(true);
+        harness.getTabLayout().setIndicatorOnlyInvalidation(true);
+        assertNoAllocation("frame coalescing", harness);
+    }
+
+    @Test
+    public void swipeWithFlatTabs_allocatesNothing() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.getTabLayout().setFlatTabs(true);
+        assertNoAllocation("flat tabs", harness);
+    }
+
+    @Test
+    public void swipeWithRoundedIndicator_allocatesNothing() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.getTabLayout().setIndicatorShape(SlidingTabLayout.INDICATOR_SHAPE_ROUNDED, 3);
+        harness.getTabLayout().setSelectedIndicatorColors(0xFF33B5E5, 0xFFFFBB33);
+        assertNoAllocation("rounded indicator", harness);
+    }
+
+    @Test
+    public void swipeWithGradientPillIndicator_allocatesNothing() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.getTabLayout().setIndicatorShape(SlidingTabLayout.INDICATOR_SHAPE_PILL);
+        harness.getTabLayout().setIndicatorGradient(0xFF33B5E5, 0xFF99CC00, 0xFFFFBB33);
+        assertNoAllocation("gradient pill indicator", harness);
+    }
+
+    @Test
+    public void swipeWithListeners_allocatesNothing() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.getTabLayout().addOnPageChangeListener(new ViewPager.SimpleOnPageChangeListener());
+        harness.getTabLayout().addOnPageChangeListener(new ViewPager.SimpleOnPageChangeListener());
+        harness.getTabLayout().setOnSelectionPredictedListener(
+                new SlidingTabLayout.OnSelectionPredictedListener() {
+                    @Override
+                    public void onSelectionPredicted(int position, int confidence) {
+                    }
+                });
+        assertNoAllocation("listeners", harness);
+    }
+
+    private static void assertNoAllocation(String name, SwipeFrameHarness harness) {
+        assumeTrue(harness.countsAllocations());
+        harness.start();
+
+        // Across all the tabs and back, so that the strip scrolls in both directions
+        SwipeScript script = SwipeScript.swipeAcross(0, TAB_COUNT - 1, FRAMES_PER_PAGE);
+        script.appendSwipeAcross(TAB_COUNT - 1, 0, FRAMES_PER_PAGE);
+
+        for (int i = 0; i < WARM_UP_SWIPES; i++) {
+            harness.run(script);
+        }
+        long frames = 0;
+        long allocatedBytes = 0;
+        for (int window = 0; window < MAX_WINDOWS && (window == 0 || allocatedBytes > 0); window++) {
+            frames = 0;
+            allocatedBytes = 0;
+            for (int i = 0; i < SWIPES; i++) {
+                SwipeFrameHarness.FrameStats stats = harness.run(script);
+                frames += stats.frames;
+                allocatedBytes += stats.allocatedBytes;
+            }
+        }
+        assertTrue(frames > 1000);
+        assertEquals(name + ", bytes allocated in " + frames + " frames, after " + MAX_WINDOWS
+                + " tries", 0, allocatedBytes);
+    }
+}
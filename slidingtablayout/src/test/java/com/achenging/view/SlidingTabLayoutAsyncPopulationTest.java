@@ -0,0 +1,177 @@
+package com.achenging.view;
+
+import android.support.v4.view.ViewPager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutAsyncPopulationTest {
+
+    private static final int TAB_COUNT   = 10;
+    private static final int OTHER_COUNT = 14;
+    // Frames to wait for the background inflations, which take a few milliseconds each
+    private static final int MAX_FRAMES  = 2000;
+
+    @Test
+    public void asyncPopulation_notifiesOnceEveryTabIsAttached() throws Exception {
+        SwipeFrameHarness harness = newAsyncHarness();
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        Counters counters = new Counters(tabLayout);
+        harness.start();
+
+        runFramesUntilPopulated(harness, counters);
+
+        assertEquals(TAB_COUNT, counters.mTabCountWhenPopulated);
+        assertTabs(tabLayout, "Tab ", TAB_COUNT);
+        // One inflation per tab: the batches waited for the background ones
+        assertEquals(TAB_COUNT, counters.mInflations);
+
+        harness.run(new SwipeScript().endFrame().endFrame());
+        assertEquals(1, counters.mPopulations);
+    }
+
+    @Test
+    public void prewarmedTabViews_areUsedForPopulation() throws Exception {
+        SwipeFrameHarness harness = newAsyncHarness();
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        Counters counters = new Counters(tabLayout);
+        ShadowLooper.pauseMainLooper();
+        tabLayout.prewarmTabViews(TAB_COUNT);
+        runFramesUntilScrapViews(harness, tabStrip, TAB_COUNT);
+
+        harness.start();
+        runFramesUntilPopulated(harness, counters);
+
+        assertEquals(TAB_COUNT, counters.mInflations);
+        assertEquals(0, tabStrip.getScrapViewCount());
+        assertTabs(tabLayout, "Tab ", TAB_COUNT);
+    }
+
+    @Test
+    public void unbindingDuringInflation_attachesNothing() throws Exception {
+        SwipeFrameHarness harness = newAsyncHarness();
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        Counters counters = new Counters(tabLayout);
+        // Nothing is delivered to the UI thread before the pager is unbound
+        ShadowLooper.pauseMainLooper();
+        tabLayout.setViewPager(harness.getViewPager());
+        tabLayout.setViewPager(null);
+        harness.attach();
+
+        // The inflations still in flight land as spare views
+        runFramesUntilScrapViews(harness, tabStrip, TAB_COUNT);
+        harness.run(new SwipeScript().endFrame());
+
+        assertEquals(0, tabStrip.getTabCount());
+        assertEquals(0, counters.mPopulations);
+
+        // and are used once a pager is bound again
+        tabLayout.setViewPager(harness.getViewPager());
+        runFramesUntilPopulated(harness, counters);
+        assertEquals(TAB_COUNT, counters.mInflations);
+        assertTabs(tabLayout, "Tab ", TAB_COUNT);
+    }
+
+    @Test
+    public void rebindingDuringInflation_populatesOnlyTheNewPager() throws Exception {
+        SwipeFrameHarness harness = newAsyncHarness();
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        Counters counters = new Counters(tabLayout);
+        List<String> titles = new ArrayList<String>();
+        for (int i = 0; i < OTHER_COUNT; i++) {
+            titles.add("Other " + i);
+        }
+        ViewPager other = harness.createViewPager(titles);
+        // Nothing is delivered to the UI thread before the other pager is bound
+        ShadowLooper.pauseMainLooper();
+        tabLayout.setViewPager(harness.getViewPager());
+        tabLayout.setViewPager(other);
+        harness.attach();
+
+        runFramesUntilPopulated(harness, counters);
+        harness.run(new SwipeScript().endFrame().endFrame());
+
+        assertEquals(1, counters.mPopulations);
+        assertEquals(OTHER_COUNT, counters.mTabCountWhenPopulated);
+        assertTabs(tabLayout, "Other ", OTHER_COUNT);
+        // The views inflated for the first pager are used for the second one
+        assertEquals(OTHER_COUNT, counters.mInflations);
+    }
+
+    private static SwipeFrameHarness newAsyncHarness() {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.setCustomTabView(android.R.layout.simple_list_item_1, android.R.id.text1);
+        harness.getTabLayout().setAsyncPopulation(true);
+        return harness;
+    }
+
+    private static void assertTabs(SlidingTabLayout tabLayout, String titlePrefix, int count) {
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        assertEquals(count, tabStrip.getTabCount());
+        for (int i = 0; i < count; i++) {
+            assertEquals(titlePrefix + i, tabStrip.getTitleView(i).getText().toString());
+            assertEquals(i, tabStrip.getTabPosition(tabStrip.getTabView(i)));
+        }
+    }
+
+    private static void runFramesUntilPopulated(SwipeFrameHarness harness, Counters counters)
+            throws InterruptedException {
+        for (int frame = 0; frame < MAX_FRAMES && counters.mPopulations == 0; frame++) {
+            Thread.sleep(1);
+            harness.run(new SwipeScript().endFrame());
+        }
+        assertEquals(1, counters.mPopulations);
+    }
+
+    private static void runFramesUntilScrapViews(SwipeFrameHarness harness, SlidingTabStrip tabStrip,
+                                                 int count) throws InterruptedException {
+        for (int frame = 0; frame < MAX_FRAMES && tabStrip.getScrapViewCount() < count; frame++) {
+            Thread.sleep(1);
+            harness.run(new SwipeScript().endFrame());
+        }
+        assertEquals(count, tabStrip.getScrapViewCount());
+    }
+
+    /**
+     * Counts the populated notifications, with the tabs attached at the time, and the inflations.
+     */
+    private static class Counters implements SlidingTabLayout.OnTabsPopulatedListener,
+            SlidingTabLayout.MetricsListener {
+        int mPopulations;
+        int mTabCountWhenPopulated;
+        int mInflations;
+
+        Counters(SlidingTabLayout tabLayout) {
+            tabLayout.setOnTabsPopulatedListener(this);
+            tabLayout.setMetricsListener(this);
+        }
+
+        @Override
+        public void onTabsPopulated(SlidingTabLayout slidingTabLayout) {
+            mPopulations++;
+            mTabCountWhenPopulated = ((SlidingTabStrip) slidingTabLayout.getChildAt(0)).getChildCount();
+        }
+
+        @Override
+        public void onSpan(int span, long durationNanos) {
+        }
+
+        @Override
+        public void onCount(int counter) {
+            if (counter == COUNT_TAB_INFLATION) {
+                mInflations++;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.achenging.view;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutBadgeTest {
+
+    private static final int TAB_COUNT = 50;
+    private static final int UPDATES   = 100;
+
+    @Test
+    public void badgeUpdates_areAppliedOncePerFrameWithoutLayout() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        harness.start();
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        tabStrip.invalidate();
+        SwipeFrameHarness.FrameStats plain = harness.run(new SwipeScript().endFrame());
+
+        for (int i = 1; i <= UPDATES; i++) {
+            tabLayout.setBadgeCount(1, i);
+            tabLayout.setBadgeDot(2);
+        }
+        tabLayout.clearBadge(2);
+        // Nothing changes before the next frame
+        assertEquals(SlidingTabStrip.BADGE_NONE, tabStrip.getBadge(1));
+
+        SwipeFrameHarness.FrameStats stats = harness.run(new SwipeScript().endFrame());
+
+        assertEquals(UPDATES, tabStrip.getBadge(1));
+        assertEquals(SlidingTabStrip.BADGE_NONE, tabStrip.getBadge(2));
+        assertEquals(0, stats.layouts);
+        assertEquals(1, stats.draws);
+        // The badge and its count
+        assertEquals(plain.drawCalls + 2, stats.drawCalls);
+    }
+
+    @Test
+    public void badges_surviveRepopulation() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        harness.start();
+        tabLayout.setBadgeDot(4);
+        harness.run(new SwipeScript().endFrame());
+
+        tabLayout.setViewPager(harness.getViewPager());
+        harness.run(new SwipeScript().endFrame());
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        assertEquals(SlidingTabStrip.BADGE_DOT, tabStrip.getBadge(4));
+    }
+
+    @Test
+    public void badges_moveWithTheirTabWhenTabsAreRemoved() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        harness.start();
+        tabLayout.setBadgeDot(2);
+        tabLayout.setBadgeCount(4, 7);
+        harness.run(new SwipeScript().endFrame());
+        // Still pending when the tabs change
+        tabLayout.setBadgeCount(6, 3);
+
+        harness.removePage(2);
+        harness.run(new SwipeScript().endFrame());
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        assertEquals(SlidingTabStrip.BADGE_NONE, tabStrip.getBadge(2));
+        assertEquals(7, tabStrip.getBadge(3));
+        assertEquals(SlidingTabStrip.BADGE_NONE, tabStrip.getBadge(4));
+        assertEquals(3, tabStrip.getBadge(5));
+        assertEquals(SlidingTabStrip.BADGE_NONE, tabStrip.getBadge(6));
+    }
+
+    @Test
+    public void badgesPastTheLastTab_areIgnored() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        harness.start();
+        tabLayout.setBadgeCount(TAB_COUNT, 3);
+        tabLayout.setBadgeDot(Integer.MAX_VALUE);
+        harness.run(new SwipeScript().endFrame());
+
+        // Not shown by a tab added there later either
+        harness.setPageTitles(titles("Tab ", TAB_COUNT + 1));
+        harness.run(new SwipeScript().endFrame());
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        assertEquals(TAB_COUNT + 1, tabStrip.getTabCount());
+        assertEquals(SlidingTabStrip.BADGE_NONE, tabStrip.getBadge(TAB_COUNT));
+        assertEquals(SlidingTabStrip.BADGE_NONE, tabStrip.getBadge(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void badges_areClearedWhenAnotherPagerIsBound() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        harness.start();
+        tabLayout.setBadgeDot(4);
+        harness.run(new SwipeScript().endFrame());
+        // Still pending when the pager changes
+        tabLayout.setBadgeCount(5, 2);
+
+        tabLayout.setViewPager(harness.createViewPager(titles("Other ", TAB_COUNT)));
+        harness.run(new SwipeScript().endFrame());
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        assertEquals(SlidingTabStrip.BADGE_NONE, tabStrip.getBadge(4));
+        assertEquals(SlidingTabStrip.BADGE_NONE, tabStrip.getBadge(5));
+
+        // Badges set for the new pager are shown
+        tabLayout.setBadgeCount(5, 2);
+        harness.run(new SwipeScript().endFrame());
+        assertEquals(2, tabStrip.getBadge(5));
+    }
+
+    private static List<String> titles(String prefix, int count) {
+        List<String> titles = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            titles.add(prefix + i);
+        }
+        return titles;
+    }
+}
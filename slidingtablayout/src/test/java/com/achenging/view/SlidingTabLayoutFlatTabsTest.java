@@ -0,0 +1,81 @@
+package com.achenging.view;
+
+import android.os.SystemClock;
+import android.text.TextPaint;
+import android.view.MotionEvent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutFlatTabsTest {
+
+    private static final int TAB_COUNT       = 1000;
+    private static final int FRAMES_PER_PAGE = 18;
+
+    @Test
+    public void flatTabs_drawVisibleTitlesWithoutTabViews() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.getTabLayout().setFlatTabs(true);
+        harness.start();
+
+        SlidingTabStrip tabStrip = getTabStrip(harness);
+        assertEquals(0, tabStrip.getChildCount());
+        assertEquals(TAB_COUNT, tabStrip.getTabCount());
+        assertTrue(tabStrip.getTabWidth(0) > tabStrip.getTitleWidth(0));
+
+        SwipeFrameHarness.FrameStats stats = harness.run(SwipeScript.swipeAcross(0, 5, FRAMES_PER_PAGE));
+
+        assertEquals(stats.toString(), stats.frames, stats.draws);
+        // The titles in the viewport, not all of them
+        int visibleTabs = SwipeFrameHarness.WIDTH / tabStrip.getTabWidth(0) + 2;
+        assertTrue(stats.toString(), stats.perFrame(stats.drawCalls) <= visibleTabs + 2);
+        assertEquals(stats.toString(), 0, stats.layouts);
+    }
+
+    @Test
+    public void flatTabs_clickSelectsTabUnderTouch() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.getTabLayout().setFlatTabs(true);
+        harness.start();
+
+        SlidingTabStrip tabStrip = getTabStrip(harness);
+        float x = tabStrip.getTabLeft(3) + tabStrip.getTabWidth(3) / 2f;
+        tap(tabStrip, x);
+
+        assertEquals(3, harness.getViewPager().getCurrentItem());
+    }
+
+    @Test
+    public void flatTabs_repopulatingKeepsTheTitlePaint() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.getTabLayout().setFlatTabs(true);
+        harness.start();
+        SlidingTabStrip tabStrip = getTabStrip(harness);
+        TextPaint paint = tabStrip.getFlatTitlePaint();
+
+        harness.removePage(0);
+        harness.run(new SwipeScript().endFrame());
+
+        assertEquals(TAB_COUNT - 1, tabStrip.getTabCount());
+        assertSame(paint, tabStrip.getFlatTitlePaint());
+    }
+
+    private static SlidingTabStrip getTabStrip(SwipeFrameHarness harness) {
+        return (SlidingTabStrip) harness.getTabLayout().getChildAt(0);
+    }
+
+    private static void tap(SlidingTabStrip tabStrip, float x) {
+        long time = SystemClock.uptimeMillis();
+        MotionEvent down = MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN, x, 10, 0);
+        MotionEvent up = MotionEvent.obtain(time, time + 50, MotionEvent.ACTION_UP, x, 10, 0);
+        assertTrue(tabStrip.dispatchTouchEvent(down));
+        tabStrip.dispatchTouchEvent(up);
+        down.recycle();
+        up.recycle();
+    }
+}
@@ -0,0 +1,98 @@
+package com.achenging.view;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures what a swipe costs per frame with {@link SwipeFrameHarness}, for a few tab counts and
+ * configurations, and checks the costs against each other.
+ */
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutFrameCostTest {
+
+    private static final int FRAMES_PER_PAGE          = 18;
+    // Default tabs are 20 pixels wide in tests, and the harness window 480
+    private static final int WIDER_THAN_VIEWPORT_TABS = 30;
+
+    @Test
+    public void swipe_drawsEveryScrolledFrame() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(10).start();
+
+        SwipeFrameHarness.FrameStats stats = harness.run(SwipeScript.swipe(0, 1, FRAMES_PER_PAGE));
+
+        assertEquals(FRAMES_PER_PAGE, stats.frames);
+        assertEquals(FRAMES_PER_PAGE, stats.draws);
+        // Every title, the indicator and the bottom border
+        assertEquals(12L * FRAMES_PER_PAGE, stats.drawCalls);
+        assertTrue(stats.invalidations > 0);
+        assertEquals(0, stats.layouts);
+    }
+
+    @Test
+    public void swipe_costsTheSameForManyTabs() throws Exception {
+        // A few more tabs than the viewport shows, each drawing its title
+        SwipeFrameHarness.FrameStats few = new SwipeFrameHarness(WIDER_THAN_VIEWPORT_TABS).start()
+                .run(SwipeScript.swipeAcross(0, 5, FRAMES_PER_PAGE));
+        assertTrue(few.toString(), few.drawCalls >= WIDER_THAN_VIEWPORT_TABS * few.frames);
+
+        SwipeFrameHarness harness = new SwipeFrameHarness(1000);
+        harness.getTabLayout().setVirtualized(true);
+        SwipeFrameHarness.FrameStats many = harness.start()
+                .run(SwipeScript.swipeAcross(0, 5, FRAMES_PER_PAGE));
+
+        assertEquals(few.frames, many.frames);
+        assertTrue(many.toString(), many.drawCalls <= few.drawCalls);
+    }
+
+    @Test
+    public void frameCoalescing_appliesOneScrollPerFrame() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(10);
+        harness.getTabLayout().setFrameCoalescing(true);
+        harness.getTabLayout().setIndicatorOnlyInvalidation(true);
+        harness.start();
+
+        // Three scroll events delivered within each frame
+        SwipeScript script = new SwipeScript();
+        for (int frame = 1; frame < FRAMES_PER_PAGE; frame++) {
+            float offset = frame / (float) FRAMES_PER_PAGE;
+            script.pageScrolled(0, offset - 0.02f)
+                    .pageScrolled(0, offset - 0.01f)
+                    .pageScrolled(0, offset)
+                    .endFrame();
+        }
+        SwipeFrameHarness.FrameStats stats = harness.run(script);
+
+        assertEquals(FRAMES_PER_PAGE - 1, stats.draws);
+    }
+
+    @Test
+    public void shapedIndicator_costsTheSameAsRectangle() throws Exception {
+        SwipeFrameHarness.FrameStats rect = new SwipeFrameHarness(10).start()
+                .run(SwipeScript.swipe(0, 1, FRAMES_PER_PAGE));
+
+        SwipeFrameHarness harness = new SwipeFrameHarness(10);
+        harness.getTabLayout().setIndicatorShape(SlidingTabLayout.INDICATOR_SHAPE_PILL);
+        harness.getTabLayout().setIndicatorGradient(0xFF33B5E5, 0xFFFFBB33);
+        SwipeFrameHarness.FrameStats shaped = harness.start()
+                .run(SwipeScript.swipe(0, 1, FRAMES_PER_PAGE));
+
+        assertEquals(rect.draws, shaped.draws);
+        assertEquals(rect.drawCalls, shaped.drawCalls);
+    }
+
+    @Test
+    public void indicatorLayer_isSkippedForShapedIndicators() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(10);
+        harness.getTabLayout().setIndicatorLayer(true);
+        harness.getTabLayout().setIndicatorShape(SlidingTabLayout.INDICATOR_SHAPE_ROUNDED);
+        harness.start();
+
+        // The layer cannot round its corners, so the strip draws the indicator again
+        SwipeFrameHarness.FrameStats stats = harness.run(SwipeScript.swipe(0, 1, FRAMES_PER_PAGE));
+        assertEquals(FRAMES_PER_PAGE, stats.draws);
+    }
+}
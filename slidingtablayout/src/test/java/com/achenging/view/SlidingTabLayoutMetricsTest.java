@@ -0,0 +1,96 @@
+package com.achenging.view;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutMetricsTest {
+
+    private static final int TAB_COUNT       = 50;
+    private static final int FRAMES_PER_PAGE = 18;
+
+    @Test
+    public void metricsListener_reportsSpansAndCounts() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        RecordingMetricsListener metrics = new RecordingMetricsListener();
+        harness.getTabLayout().setMetricsListener(metrics);
+        harness.start();
+
+        assertEquals(1, metrics.spans[SlidingTabLayout.MetricsListener.SPAN_POPULATE]);
+        assertEquals(TAB_COUNT, metrics.counts[SlidingTabLayout.MetricsListener.COUNT_TAB_INFLATION]);
+
+        metrics.reset();
+        SwipeFrameHarness.FrameStats stats = harness.run(SwipeScript.swipe(0, 1, FRAMES_PER_PAGE));
+
+        assertEquals(stats.draws, metrics.spans[SlidingTabLayout.MetricsListener.SPAN_DRAW]);
+        assertEquals(FRAMES_PER_PAGE, metrics.spans[SlidingTabLayout.MetricsListener.SPAN_PAGE_SCROLL]);
+        assertEquals(FRAMES_PER_PAGE, metrics.spans[SlidingTabLayout.MetricsListener.SPAN_SCROLL_TO_TAB]);
+        assertEquals(FRAMES_PER_PAGE, metrics.counts[SlidingTabLayout.MetricsListener.COUNT_INVALIDATION]);
+        // At least the first and second tab swap colors
+        assertTrue(metrics.counts[SlidingTabLayout.MetricsListener.COUNT_RECOLOR] >= 2);
+        assertEquals(0, metrics.counts[SlidingTabLayout.MetricsListener.COUNT_TAB_INFLATION]);
+        assertTrue(metrics.durationNanos[SlidingTabLayout.MetricsListener.SPAN_DRAW] > 0);
+    }
+
+    @Test
+    public void metricsListener_countsBadgeInvalidations() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        RecordingMetricsListener metrics = new RecordingMetricsListener();
+        harness.getTabLayout().setMetricsListener(metrics);
+        harness.start();
+
+        metrics.reset();
+        harness.getTabLayout().setBadgeCount(2, 3);
+        harness.getTabLayout().setBadgeDot(4);
+        harness.run(new SwipeScript().endFrame());
+
+        assertEquals(2, metrics.counts[SlidingTabLayout.MetricsListener.COUNT_INVALIDATION]);
+    }
+
+    @Test
+    public void removedMetricsListener_reportsNothing() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        RecordingMetricsListener metrics = new RecordingMetricsListener();
+        harness.getTabLayout().setMetricsListener(metrics);
+        harness.getTabLayout().setMetricsListener(null);
+        harness.start();
+
+        harness.run(SwipeScript.swipe(0, 1, FRAMES_PER_PAGE));
+
+        for (int i = 0; i < metrics.spans.length; i++) {
+            assertEquals(0, metrics.spans[i]);
+        }
+        for (int i = 0; i < metrics.counts.length; i++) {
+            assertEquals(0, metrics.counts[i]);
+        }
+    }
+
+    private static class RecordingMetricsListener implements SlidingTabLayout.MetricsListener {
+        final int[]  spans         = new int[4];
+        final long[] durationNanos = new long[4];
+        final int[]  counts        = new int[3];
+
+        @Override
+        public void onSpan(int span, long durationNanos) {
+            spans[span]++;
+            this.durationNanos[span] += durationNanos;
+        }
+
+        @Override
+        public void onCount(int counter) {
+            counts[counter]++;
+        }
+
+        void reset() {
+            Arrays.fill(spans, 0);
+            Arrays.fill(durationNanos, 0);
+            Arrays.fill(counts, 0);
+        }
+    }
+}
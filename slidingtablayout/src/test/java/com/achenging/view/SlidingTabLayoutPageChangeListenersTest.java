@@ -0,0 +1,66 @@
+package com.achenging.view;
+
+import android.support.v4.view.ViewPager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutPageChangeListenersTest {
+
+    private static final int TAB_COUNT       = 10;
+    private static final int FRAMES_PER_PAGE = 18;
+
+    @Test
+    public void setViewPager_keepsListenersOfThePager() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SelectionCounter pagerListener = new SelectionCounter();
+        SelectionCounter tabsListener = new SelectionCounter();
+        harness.getViewPager().addOnPageChangeListener(pagerListener);
+        harness.getTabLayout().addOnPageChangeListener(tabsListener);
+        // Attaches the pager to the tabs once more
+        harness.getTabLayout().setViewPager(harness.getViewPager());
+        harness.start();
+
+        harness.run(SwipeScript.swipe(0, 1, FRAMES_PER_PAGE));
+
+        assertEquals(1, pagerListener.mSelections);
+        // The tabs are attached to the pager once, not once per call
+        assertEquals(1, tabsListener.mSelections);
+    }
+
+    @Test
+    public void addedListeners_allReceiveEventsUntilRemoved() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        SelectionCounter first = new SelectionCounter();
+        SelectionCounter second = new SelectionCounter();
+        SelectionCounter set = new SelectionCounter();
+        tabLayout.addOnPageChangeListener(first);
+        tabLayout.addOnPageChangeListener(second);
+        tabLayout.setOnPageChangeListener(set);
+        harness.start();
+
+        harness.run(SwipeScript.swipe(0, 1, FRAMES_PER_PAGE));
+        tabLayout.removeOnPageChangeListener(first);
+        tabLayout.setOnPageChangeListener(null);
+        harness.run(SwipeScript.swipe(1, 2, FRAMES_PER_PAGE));
+
+        assertEquals(1, first.mSelections);
+        assertEquals(2, second.mSelections);
+        assertEquals(1, set.mSelections);
+    }
+
+    private static class SelectionCounter extends ViewPager.SimpleOnPageChangeListener {
+        int mSelections;
+
+        @Override
+        public void onPageSelected(int position) {
+            mSelections++;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.achenging.view;
+
+import android.os.SystemClock;
+import android.support.v4.view.ViewPager;
+import android.view.MotionEvent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.achenging.view.SlidingTabLayout.OnSelectionPredictedListener.CONFIDENCE_HIGH;
+import static com.achenging.view.SlidingTabLayout.OnSelectionPredictedListener.CONFIDENCE_LOW;
+import static com.achenging.view.SlidingTabLayout.OnSelectionPredictedListener.CONFIDENCE_MEDIUM;
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutSelectionPredictionTest {
+
+    private static final int TAB_COUNT       = 50;
+    private static final int FRAMES_PER_PAGE = 18;
+
+    @Test
+    public void swipe_predictsTargetBeforeSelection() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        RecordingListener listener = new RecordingListener();
+        harness.getTabLayout().setOnSelectionPredictedListener(listener);
+        harness.getTabLayout().addOnPageChangeListener(listener);
+        harness.start();
+
+        harness.run(SwipeScript.swipe(0, 1, FRAMES_PER_PAGE));
+        assertEquals(Arrays.asList("predicted 1 " + CONFIDENCE_MEDIUM,
+                "predicted 1 " + CONFIDENCE_HIGH, "selected 1"), listener.mEvents);
+
+        listener.mEvents.clear();
+        harness.run(SwipeScript.swipe(1, 0, FRAMES_PER_PAGE));
+        assertEquals(Arrays.asList("predicted 0 " + CONFIDENCE_MEDIUM,
+                "predicted 0 " + CONFIDENCE_HIGH, "selected 0"), listener.mEvents);
+    }
+
+    @Test
+    public void dragShortOfThreshold_predictsOnRelease() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        RecordingListener listener = new RecordingListener();
+        harness.getTabLayout().setOnSelectionPredictedListener(listener);
+        harness.getTabLayout().setPredictionThreshold(0.9f);
+        harness.start();
+
+        // Released halfway, before passing the threshold; the release still predicts the page
+        harness.run(SwipeScript.swipe(0, 1, FRAMES_PER_PAGE));
+        assertEquals(Arrays.asList("predicted 1 " + CONFIDENCE_HIGH), listener.mEvents);
+    }
+
+    @Test
+    public void touchDown_predictsTouchedTab() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        RecordingListener listener = new RecordingListener();
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        tabLayout.setOnSelectionPredictedListener(listener);
+        harness.start();
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        touchDown(tabLayout, tabStrip.getTabLeft(3) + tabStrip.getTabWidth(3) / 2f);
+        // Already selected
+        touchDown(tabLayout, tabStrip.getTabWidth(0) / 2f);
+
+        assertEquals(Arrays.asList("predicted 3 " + CONFIDENCE_LOW), listener.mEvents);
+    }
+
+    private static void touchDown(SlidingTabLayout tabLayout, float x) {
+        long time = SystemClock.uptimeMillis();
+        MotionEvent down = MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN, x, 10, 0);
+        MotionEvent cancel = MotionEvent.obtain(time, time, MotionEvent.ACTION_CANCEL, x, 10, 0);
+        tabLayout.dispatchTouchEvent(down);
+        tabLayout.dispatchTouchEvent(cancel);
+        down.recycle();
+        cancel.recycle();
+    }
+
+    private static class RecordingListener extends ViewPager.SimpleOnPageChangeListener
+            implements SlidingTabLayout.OnSelectionPredictedListener {
+        final List<String> mEvents = new ArrayList<String>();
+
+        @Override
+        public void onSelectionPredicted(int position, int confidence) {
+            mEvents.add("predicted " + position + " " + confidence);
+        }
+
+        @Override
+        public void onPageSelected(int position) {
+            mEvents.add("selected " + position);
+        }
+    }
+}
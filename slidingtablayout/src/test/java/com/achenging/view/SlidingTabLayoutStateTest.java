@@ -0,0 +1,138 @@
+package com.achenging.view;
+
+import android.graphics.Typeface;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutStateTest {
+
+    private static final int TAB_COUNT       = 50;
+    private static final int SELECTED        = 20;
+    private static final int FRAMES_PER_PAGE = 6;
+    private static final int EXTRA_SCROLL    = 37;
+
+    @Test
+    public void restoredState_startsAtSavedScrollWithSavedMeasurements() throws Exception {
+        SwipeFrameHarness before = new SwipeFrameHarness(TAB_COUNT);
+        before.start();
+        before.run(SwipeScript.swipeAcross(0, SELECTED, FRAMES_PER_PAGE));
+        // Scrolled by hand past the selected tab
+        before.getTabLayout().scrollBy(EXTRA_SCROLL, 0);
+        final int scrollX = before.getTabLayout().getScrollX();
+
+        SlidingTabLayout.SavedState state = parcel(before.getTabLayout().onSaveInstanceState());
+        // Made up widths, which are only used if the titles are not measured again
+        state.titleWidths[3] = 777;
+        state.titles[4] = "Renamed";
+        state.titleWidths[4] = 777;
+
+        SwipeFrameHarness after = new SwipeFrameHarness(TAB_COUNT);
+        after.getViewPager().setCurrentItem(SELECTED);
+        after.restoreState(state).start();
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) after.getTabLayout().getChildAt(0);
+        assertEquals(scrollX, after.getTabLayout().getScrollX());
+        assertEquals(777, tabStrip.getTitleWidth(3));
+        assertEquals(SlidingTabStrip.measureTitleWidth(tabStrip.getTitleView(4)), tabStrip.getTitleWidth(4));
+        assertEquals(tabStrip.getTitleColor(SELECTED, 1f),
+                tabStrip.getTitleView(SELECTED).getCurrentTextColor());
+    }
+
+    @Test
+    public void noState_startsAtCurrentTab() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        harness.getViewPager().setCurrentItem(SELECTED);
+        harness.start();
+
+        // Scrolled once laid out, rather than clamped to the strip before it was
+        SlidingTabStrip tabStrip = (SlidingTabStrip) harness.getTabLayout().getChildAt(0);
+        int scrollX = harness.getTabLayout().getScrollX();
+        assertTrue(scrollX > tabStrip.getTabLeft(SELECTED - 1));
+        assertTrue(scrollX <= tabStrip.getTabLeft(SELECTED));
+    }
+
+    @Test
+    public void restoredState_withAnotherTitleStyle_measuresTitlesAgain() throws Exception {
+        SwipeFrameHarness before = new SwipeFrameHarness(TAB_COUNT);
+        before.start();
+        SlidingTabLayout.SavedState state = parcel(before.getTabLayout().onSaveInstanceState());
+        state.titleWidths[3] = 777;
+        state.titleStyle = "1.0/" + Typeface.BOLD + "/1.0";
+
+        SwipeFrameHarness after = new SwipeFrameHarness(TAB_COUNT);
+        after.restoreState(state).start();
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) after.getTabLayout().getChildAt(0);
+        assertEquals(SlidingTabStrip.measureTitleWidth(tabStrip.getTitleView(3)), tabStrip.getTitleWidth(3));
+    }
+
+    @Test
+    public void restoredStateBeforeThePager_isCheckedAgainstTheTitleStyle() throws Exception {
+        SwipeFrameHarness before = new SwipeFrameHarness(TAB_COUNT);
+        before.getTabLayout().setVirtualized(true);
+        before.start();
+        SlidingTabLayout.SavedState state = parcel(before.getTabLayout().onSaveInstanceState());
+        state.titleWidths[3] = 777;
+
+        // Restored before the tabs are populated, as when the pager is set later
+        SwipeFrameHarness same = new SwipeFrameHarness(TAB_COUNT);
+        same.getTabLayout().setVirtualized(true);
+        same.getTabLayout().onRestoreInstanceState(state);
+        same.start();
+        assertEquals(777, ((SlidingTabStrip) same.getTabLayout().getChildAt(0)).getTitleWidth(3));
+
+        state.titleStyle = "1.0/" + Typeface.BOLD + "/1.0";
+        SwipeFrameHarness other = new SwipeFrameHarness(TAB_COUNT);
+        other.getTabLayout().setVirtualized(true);
+        other.getTabLayout().onRestoreInstanceState(state);
+        other.start();
+        assertNotEquals(777, ((SlidingTabStrip) other.getTabLayout().getChildAt(0)).getTitleWidth(3));
+    }
+
+    @Test
+    public void savingAndRestoringState_inflatesNoTabView() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        harness.setCustomTabView(android.R.layout.simple_list_item_1, android.R.id.text1);
+        harness.start();
+        final int[] inflations = new int[1];
+        tabLayout.setMetricsListener(new SlidingTabLayout.MetricsListener() {
+            @Override
+            public void onSpan(int span, long durationNanos) {
+            }
+
+            @Override
+            public void onCount(int counter) {
+                if (counter == COUNT_TAB_INFLATION) {
+                    inflations[0]++;
+                }
+            }
+        });
+
+        SlidingTabLayout.SavedState state = parcel(tabLayout.onSaveInstanceState());
+        tabLayout.onRestoreInstanceState(state);
+
+        assertEquals(0, inflations[0]);
+        assertEquals(TAB_COUNT, state.titles.length);
+        assertNotNull(state.titleStyle);
+    }
+
+    private static SlidingTabLayout.SavedState parcel(Parcelable state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            state.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return SlidingTabLayout.SavedState.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
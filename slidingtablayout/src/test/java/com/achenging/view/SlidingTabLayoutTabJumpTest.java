@@ -0,0 +1,74 @@
+package com.achenging.view;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutTabJumpTest {
+
+    private static final int TAB_COUNT       = 50;
+    private static final int TARGET_POSITION = 20;
+    private static final int FRAME_MILLIS    = 16;
+    private static final int SMOOTH_FRAMES   = 30;
+
+    @Test
+    public void directTabJump_ignoresIntermediatePages() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        tabLayout.setDirectTabJumps(true);
+        PageScrollCounter metrics = new PageScrollCounter();
+        tabLayout.setMetricsListener(metrics);
+        harness.setFrameIntervalMillis(FRAME_MILLIS).start();
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        tabStrip.getTabView(TARGET_POSITION).performClick();
+        assertEquals(TARGET_POSITION, harness.getViewPager().getCurrentItem());
+
+        // The pager scrolls through every page in between, the strip goes straight to the target
+        harness.run(SwipeScript.smoothScroll(0, TARGET_POSITION, SMOOTH_FRAMES));
+
+        assertEquals(0, metrics.mPageScrolls);
+        assertEquals(tabStrip.getTabLeft(TARGET_POSITION), tabLayout.getScrollX());
+        assertEquals(tabStrip.getTitleColor(TARGET_POSITION, 1f),
+                tabStrip.getTitleView(TARGET_POSITION).getCurrentTextColor());
+
+        // Once settled, the tabs follow the pager again
+        harness.run(SwipeScript.swipe(TARGET_POSITION, TARGET_POSITION + 1, 18));
+        assertEquals(18, metrics.mPageScrolls);
+    }
+
+    @Test
+    public void clickOnAdjacentTab_followsPager() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        tabLayout.setDirectTabJumps(true);
+        PageScrollCounter metrics = new PageScrollCounter();
+        tabLayout.setMetricsListener(metrics);
+        harness.setFrameIntervalMillis(FRAME_MILLIS).start();
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        tabStrip.getTabView(1).performClick();
+        harness.run(SwipeScript.smoothScroll(0, 1, SMOOTH_FRAMES));
+
+        assertEquals(SMOOTH_FRAMES, metrics.mPageScrolls);
+    }
+
+    private static class PageScrollCounter implements SlidingTabLayout.MetricsListener {
+        int mPageScrolls;
+
+        @Override
+        public void onSpan(int span, long durationNanos) {
+            if (span == SPAN_PAGE_SCROLL) {
+                mPageScrolls++;
+            }
+        }
+
+        @Override
+        public void onCount(int counter) {
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.achenging.view;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutTabViewPoolTest {
+
+    private static final int TAB_COUNT = 10;
+
+    @Test
+    public void rebinding_reusesPooledTabViews() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        TabViewPool pool = new TabViewPool();
+        tabLayout.setTabViewPool(pool);
+        InflationCounter inflations = new InflationCounter();
+        tabLayout.setMetricsListener(inflations);
+        harness.start();
+        Set<View> tabViews = getTabViews(tabLayout);
+        inflations.mInflations = 0;
+
+        tabLayout.setViewPager(harness.getViewPager());
+
+        assertEquals(0, inflations.mInflations);
+        assertEquals(tabViews, getTabViews(tabLayout));
+        assertEquals(0, pool.getRecycledViewCount(0));
+    }
+
+    @Test
+    public void otherTabLayout_takesPooledTabViewsAndClicks() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        TabViewPool pool = new TabViewPool();
+        tabLayout.setTabViewPool(pool);
+        harness.start();
+        Set<View> tabViews = getTabViews(tabLayout);
+
+        tabLayout.setViewPager(null);
+        assertEquals(TAB_COUNT, pool.getRecycledViewCount(0));
+
+        SlidingTabLayout other = new SlidingTabLayout(tabLayout.getContext());
+        other.setTabViewPool(pool);
+        InflationCounter inflations = new InflationCounter();
+        other.setMetricsListener(inflations);
+        other.setViewPager(harness.getViewPager());
+
+        assertEquals(0, inflations.mInflations);
+        assertEquals(tabViews, getTabViews(other));
+        SlidingTabStrip tabStrip = (SlidingTabStrip) other.getChildAt(0);
+        tabStrip.getTabView(3).performClick();
+        assertEquals(3, harness.getViewPager().getCurrentItem());
+    }
+
+    @Test
+    public void fullPool_dropsExtraViews() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        TabViewPool pool = new TabViewPool();
+        pool.setMaxRecycledViews(0, 4);
+        harness.getTabLayout().setTabViewPool(pool);
+        harness.start();
+
+        harness.getTabLayout().setViewPager(null);
+
+        assertEquals(4, pool.getRecycledViewCount(0));
+    }
+
+    @Test
+    public void switchingCustomTabView_poolsViewsByTheirLayout() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        TabViewPool pool = new TabViewPool();
+        tabLayout.setTabViewPool(pool);
+        harness.setCustomTabView(android.R.layout.activity_list_item, android.R.id.text1);
+        harness.start();
+
+        // The new layout's title view is not in the views of the previous one
+        tabLayout.setCustomTabView(android.R.layout.simple_list_item_2, android.R.id.text2);
+        harness.run(new SwipeScript().endFrame());
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        assertEquals(TAB_COUNT, pool.getRecycledViewCount(android.R.layout.activity_list_item));
+        assertEquals(0, pool.getRecycledViewCount(android.R.layout.simple_list_item_2));
+        assertEquals("Tab 3", tabStrip.getTitleView(3).getText().toString());
+
+        InflationCounter inflations = new InflationCounter();
+        tabLayout.setMetricsListener(inflations);
+        tabLayout.setCustomTabView(android.R.layout.activity_list_item, android.R.id.text1);
+
+        assertEquals(0, inflations.mInflations);
+        assertEquals(0, pool.getRecycledViewCount(android.R.layout.activity_list_item));
+        assertEquals(TAB_COUNT, pool.getRecycledViewCount(android.R.layout.simple_list_item_2));
+    }
+
+    @Test
+    public void defaultTabViews_areOnlyReusedByTheSameTabLayoutClass() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        TabViewPool pool = new TabViewPool();
+        tabLayout.setTabViewPool(pool);
+        harness.start();
+        tabLayout.setViewPager(null);
+
+        SlidingTabLayout other = new SlidingTabLayout(tabLayout.getContext()) {
+            @Override
+            protected TextView createDefaultTabView(Context context) {
+                TextView textView = super.createDefaultTabView(context);
+                textView.setCompoundDrawablePadding(4);
+                return textView;
+            }
+        };
+        other.setTabViewPool(pool);
+        InflationCounter inflations = new InflationCounter();
+        other.setMetricsListener(inflations);
+        other.setViewPager(harness.getViewPager());
+
+        assertEquals(TAB_COUNT, inflations.mInflations);
+        assertEquals(TAB_COUNT, pool.getRecycledViewCount(0));
+    }
+
+    private static Set<View> getTabViews(SlidingTabLayout tabLayout) {
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        Set<View> tabViews = new HashSet<View>();
+        for (int i = 0; i < tabStrip.getTabCount(); i++) {
+            tabViews.add(tabStrip.getTabView(i));
+        }
+        return tabViews;
+    }
+
+    private static class InflationCounter implements SlidingTabLayout.MetricsListener {
+        int mInflations;
+
+        @Override
+        public void onSpan(int span, long durationNanos) {
+        }
+
+        @Override
+        public void onCount(int counter) {
+            if (counter == COUNT_TAB_INFLATION) {
+                mInflations++;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.achenging.view;
+
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutTitleExecutorTest {
+
+    private static final int TAB_COUNT = 20;
+
+    @Test
+    public void titleExecutor_populatesWithPrecomputedTitles() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        QueuedExecutor executor = new QueuedExecutor();
+        harness.getTabLayout().setTitleExecutor(executor);
+        harness.start();
+
+        SlidingTabStrip tabStrip = (SlidingTabStrip) harness.getTabLayout().getChildAt(0);
+        assertEquals(1, executor.mTasks.size());
+        assertEquals(0, tabStrip.getChildCount());
+
+        executor.runAll();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        // Lay the tabs out
+        DrawingTestRunner.doFrame();
+
+        assertEquals(TAB_COUNT, tabStrip.getChildCount());
+        for (int i = 0; i < TAB_COUNT; i++) {
+            TextView titleView = tabStrip.getTitleView(i);
+            assertEquals("TAB " + i, titleView.getText().toString());
+            assertNull(titleView.getTransformationMethod());
+            assertTrue(tabStrip.getTitleWidth(i) > 0);
+            assertEquals(SlidingTabStrip.measureTitleWidth(titleView), tabStrip.getTitleWidth(i));
+        }
+    }
+
+    @Test
+    public void titleExecutor_ignoresTitlesOfReplacedPager() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        QueuedExecutor executor = new QueuedExecutor();
+        harness.getTabLayout().setTitleExecutor(executor);
+        harness.start();
+
+        harness.getTabLayout().setViewPager(null);
+        executor.runAll();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(0, ((SlidingTabStrip) harness.getTabLayout().getChildAt(0)).getChildCount());
+    }
+
+    private static class QueuedExecutor implements Executor {
+        final ArrayList<Runnable> mTasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            for (int i = 0; i < mTasks.size(); i++) {
+                mTasks.get(i).run();
+            }
+            mTasks.clear();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.achenging.view;
+
+import android.view.View;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabLayoutVirtualizedTest {
+
+    private static final int TAB_COUNT       = 1000;
+    private static final int SELECTED        = 3;
+    private static final int FRAMES_PER_PAGE = 6;
+    // Scroll steps across the strip, some shorter and some longer than the attached window
+    private static final int[] SCROLL_STEPS = {37, 120, 480, 5, 1900, 260};
+
+    @Test
+    public void scrolling_attachesViewsBoundToTheirTabs() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        tabLayout.setVirtualized(true);
+        harness.start();
+        harness.run(SwipeScript.swipeAcross(0, SELECTED, FRAMES_PER_PAGE));
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+        assertAttachedTabs(harness, tabStrip);
+
+        // Right across the window and back, recycling views at both ends
+        for (int step : SCROLL_STEPS) {
+            tabLayout.scrollBy(step, 0);
+            harness.run(new SwipeScript().endFrame());
+            assertAttachedTabs(harness, tabStrip);
+        }
+        for (int step : SCROLL_STEPS) {
+            tabLayout.scrollBy(-step, 0);
+            harness.run(new SwipeScript().endFrame());
+            assertAttachedTabs(harness, tabStrip);
+        }
+        assertNotNull(tabStrip.getTabView(SELECTED));
+    }
+
+    @Test
+    public void swiping_keepsAttachedViewsBoundToTheirTabs() throws Exception {
+        SwipeFrameHarness harness = new SwipeFrameHarness(TAB_COUNT);
+        SlidingTabLayout tabLayout = harness.getTabLayout();
+        tabLayout.setVirtualized(true);
+        harness.start();
+        SlidingTabStrip tabStrip = (SlidingTabStrip) tabLayout.getChildAt(0);
+
+        for (int page = 0; page < 20; page++) {
+            harness.run(SwipeScript.swipe(page, page + 1, FRAMES_PER_PAGE));
+            assertAttachedTabs(harness, tabStrip);
+        }
+        for (int page = 20; page > 10; page--) {
+            harness.run(SwipeScript.swipe(page, page - 1, FRAMES_PER_PAGE));
+            assertAttachedTabs(harness, tabStrip);
+        }
+    }
+
+    /**
+     * Assert that the attached views are consecutive tabs covering the viewport, each with its own
+     * title, position and title color, however often it was recycled.
+     */
+    private static void assertAttachedTabs(SwipeFrameHarness harness, SlidingTabStrip tabStrip) {
+        final SlidingTabLayout tabLayout = harness.getTabLayout();
+        final int selected = harness.getViewPager().getCurrentItem();
+        assertTrue(tabStrip.getChildCount() > 0);
+        int previous = -1;
+        for (int i = 0; i < tabStrip.getChildCount(); i++) {
+            View tabView = tabStrip.getChildAt(i);
+            int position = ((SlidingTabStrip.TabLayoutParams) tabView.getLayoutParams()).position;
+            if (previous >= 0) {
+                assertEquals(previous + 1, position);
+            }
+            previous = position;
+
+            String where = "tab " + position + " at scroll " + tabLayout.getScrollX();
+            assertSame(where, tabView, tabStrip.getTabView(position));
+            TextView titleView = tabStrip.findTitleView(tabView);
+            assertEquals(where, "Tab " + position, titleView.getText().toString());
+            assertEquals(where, tabStrip.getTitleColor(position, position == selected ? 1f : 0f),
+                    titleView.getCurrentTextColor());
+            assertEquals(where, tabStrip.getTabLeft(position), tabView.getLeft());
+        }
+
+        int first = ((SlidingTabStrip.TabLayoutParams) tabStrip.getChildAt(0).getLayoutParams()).position;
+        int viewportLeft = tabLayout.getScrollX();
+        int viewportRight = viewportLeft + tabLayout.getWidth();
+        assertTrue(tabStrip.getTabLeft(first) <= viewportLeft);
+        assertTrue(previous == TAB_COUNT - 1
+                || tabStrip.getTabLeft(previous) + tabStrip.getTabWidth(previous) >= viewportRight);
+    }
+}
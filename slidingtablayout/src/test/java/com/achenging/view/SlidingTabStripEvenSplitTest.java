@@ -0,0 +1,76 @@
+package com.achenging.view;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link SlidingTabStrip} splits its width evenly over tabs of any width.
+ */
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabStripEvenSplitTest {
+
+    private static final int TAB_COUNT    = 7;
+    private static final int STRIP_HEIGHT = 48;
+
+    private SlidingTabStrip mTabStrip;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = RuntimeEnvironment.application;
+        mTabStrip = new SlidingTabStrip(context);
+        mTabStrip.setEvenSplit(true);
+
+        for (int i = 0; i < TAB_COUNT; i++) {
+            TextView textView = new TextView(context);
+            // Titles of very different lengths
+            textView.setText(i % 2 == 0 ? "Tab " + i : "A much longer title for tab " + i);
+            mTabStrip.addView(textView, new LinearLayout.LayoutParams(
+                    ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        }
+    }
+
+    @Test
+    public void evenSplit_fillsWidthWithEqualTabs() throws Exception {
+        layout(1000);
+        assertEvenSplit(1000);
+    }
+
+    @Test
+    public void evenSplit_followsWidthChanges() throws Exception {
+        layout(1000);
+        layout(700);
+        assertEvenSplit(700);
+    }
+
+    private void layout(int width) {
+        mTabStrip.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(STRIP_HEIGHT, View.MeasureSpec.EXACTLY));
+        mTabStrip.layout(0, 0, width, STRIP_HEIGHT);
+    }
+
+    private void assertEvenSplit(int width) {
+        assertEquals(width, mTabStrip.getWidth());
+        int right = 0;
+        for (int i = 0; i < TAB_COUNT; i++) {
+            View tab = mTabStrip.getChildAt(i);
+            assertEquals(right, tab.getLeft());
+            // The remainder is spread, so no two tabs differ by more than a pixel
+            assertTrue(Math.abs(tab.getWidth() - width / TAB_COUNT) <= 1);
+            assertEquals(STRIP_HEIGHT, tab.getHeight());
+            right = tab.getRight();
+        }
+        assertEquals(width, right);
+    }
+}
@@ -0,0 +1,145 @@
+package com.achenging.view;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Counts the area {@link SlidingTabStrip} asks to redraw while the pager scrolls.
+ */
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SlidingTabStripInvalidationTest {
+
+    private static final int TAB_COUNT           = 10;
+    private static final int TAB_WIDTH           = 120;
+    private static final int STRIP_HEIGHT        = 48;
+    private static final int INDICATOR_THICKNESS = 4;
+
+    private RecordingTabStrip mTabStrip;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = RuntimeEnvironment.application;
+        mTabStrip = new RecordingTabStrip(context);
+        mTabStrip.setSelectedIndicatorColors(Color.RED);
+        mTabStrip.setSelectedIndicatorThickness(INDICATOR_THICKNESS);
+        mTabStrip.setBottomBorderThickness(0);
+
+        for (int i = 0; i < TAB_COUNT; i++) {
+            TextView textView = new TextView(context);
+            textView.setText("Tab " + i);
+            mTabStrip.addView(textView, new LinearLayout.LayoutParams(TAB_WIDTH,
+                    ViewGroup.LayoutParams.MATCH_PARENT));
+        }
+
+        int width = TAB_COUNT * TAB_WIDTH;
+        mTabStrip.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(STRIP_HEIGHT, View.MeasureSpec.EXACTLY));
+        mTabStrip.layout(0, 0, width, STRIP_HEIGHT);
+    }
+
+    @Test
+    public void fullInvalidation_redrawsWholeStrip() throws Exception {
+        mTabStrip.onViewPagerPageChanged(0, 0f);
+        mTabStrip.reset();
+
+        mTabStrip.onViewPagerPageChanged(0, 0.5f);
+
+        assertEquals((long) mTabStrip.getWidth() * mTabStrip.getHeight(), mTabStrip.mInvalidatedArea);
+    }
+
+    @Test
+    public void indicatorOnlyInvalidation_redrawsIndicatorBand() throws Exception {
+        mTabStrip.setIndicatorOnlyInvalidation(true);
+        mTabStrip.onViewPagerPageChanged(0, 0f);
+        mTabStrip.reset();
+
+        long totalArea = 0;
+        for (int frame = 1; frame <= 10; frame++) {
+            mTabStrip.onViewPagerPageChanged(0, frame / 10f);
+            assertEquals(STRIP_HEIGHT - INDICATOR_THICKNESS, mTabStrip.mLastTop);
+            assertEquals(STRIP_HEIGHT, mTabStrip.mLastBottom);
+            totalArea += mTabStrip.mInvalidatedArea;
+            mTabStrip.reset();
+        }
+
+        // Ten frames of a swipe must cost less than a single full redraw
+        assertTrue(totalArea < (long) mTabStrip.getWidth() * mTabStrip.getHeight());
+    }
+
+    @Test
+    public void indicatorOnlyInvalidation_coversOldAndNewIndicator() throws Exception {
+        mTabStrip.setIndicatorOnlyInvalidation(true);
+        mTabStrip.onViewPagerPageChanged(1, 0f);
+        mTabStrip.reset();
+
+        mTabStrip.onViewPagerPageChanged(5, 0f);
+
+        assertTrue(mTabStrip.mLastLeft < 2 * TAB_WIDTH);
+        assertTrue(mTabStrip.mLastRight > 5 * TAB_WIDTH);
+        assertEquals(0, mTabStrip.mFullInvalidations);
+    }
+
+    @Test
+    public void badge_redrawsOnlyItsTab() throws Exception {
+        mTabStrip.reset();
+
+        mTabStrip.setBadge(3, 7);
+        mTabStrip.setBadge(3, SlidingTabStrip.BADGE_DOT);
+        // Unchanged
+        mTabStrip.setBadge(3, SlidingTabStrip.BADGE_DOT);
+
+        assertEquals(2L * TAB_WIDTH * STRIP_HEIGHT, mTabStrip.mInvalidatedArea);
+        assertEquals(3 * TAB_WIDTH, mTabStrip.mLastLeft);
+        assertEquals(4 * TAB_WIDTH, mTabStrip.mLastRight);
+        assertEquals(0, mTabStrip.mFullInvalidations);
+        assertFalse(mTabStrip.isLayoutRequested());
+    }
+
+    private static class RecordingTabStrip extends SlidingTabStrip {
+        long mInvalidatedArea;
+        int  mFullInvalidations;
+        int  mLastLeft;
+        int  mLastTop;
+        int  mLastRight;
+        int  mLastBottom;
+
+        RecordingTabStrip(Context context) {
+            super(context);
+        }
+
+        void reset() {
+            mInvalidatedArea = 0;
+            mFullInvalidations = 0;
+        }
+
+        @Override
+        public void invalidate() {
+            mFullInvalidations++;
+            mInvalidatedArea += (long) getWidth() * getHeight();
+            super.invalidate();
+        }
+
+        @Override
+        public void invalidate(int l, int t, int r, int b) {
+            mInvalidatedArea += (long) (r - l) * (b - t);
+            mLastLeft = l;
+            mLastTop = t;
+            mLastRight = r;
+            mLastBottom = b;
+            super.invalidate(l, t, r, b);
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.achenging.view;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Parcelable;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.FrameLayout;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays {@link SwipeScript}s against a {@link SlidingTabLayout} bound to a {@link ViewPager},
+ * headless on the JVM, and records what each simulated frame costs.
+ * <p>
+ * Robolectric lays the window out but never draws it, so every frame the harness runs the main
+ * looper (posted callbacks and layout passes) and the {@link android.view.Choreographer}
+ * callbacks, and then draws the window itself onto a canvas that only counts draw calls, if
+ * anything in it was invalidated. The draw calls include the title text, since
+ * {@link DrawingTestRunner} gives fonts a height. Allocations are
+ * counted while the pager callbacks are dispatched, the frame callbacks run and the window is
+ * drawn, i.e. in the library's code; the looper's own bookkeeping is left out.
+ * <p>
+ * Tests using the harness must run with {@link DrawingTestRunner}, so that views really draw.
+ */
+final class SwipeFrameHarness {
+
+    static final int WIDTH  = 480;
+    static final int HEIGHT = 48;
+
+    // Clip bounds the counting canvas reports, beyond any tab layout
+    private static final int TEXT_CLIP = 1 << 20;
+
+    /**
+     * Totals over the frames of one {@link #run(SwipeScript)}.
+     */
+    static final class FrameStats {
+        int  frames;
+        int  draws;
+        long drawCalls;
+        int  invalidations;
+        int  layouts;
+        long allocatedBytes;
+
+        double perFrame(long value) {
+            return frames == 0 ? 0 : value / (double) frames;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%d frames, per frame: %.2f draws, %.1f draw calls, %.2f invalidations, "
+                            + "%.2f layout passes, %.1f bytes allocated",
+                    frames, perFrame(draws), perFrame(drawCalls), perFrame(invalidations),
+                    perFrame(layouts), perFrame(allocatedBytes));
+        }
+    }
+
+    private final Activity         mActivity;
+    private final WindowRoot       mRoot;
+    private final ScriptedPager    mViewPager;
+    private final TitlesAdapter    mAdapter;
+    private final SlidingTabLayout mTabLayout;
+    private final CountingCanvas   mCanvas = new CountingCanvas();
+
+    private final ThreadMXBean mThreadMXBean = ManagementFactory.getThreadMXBean();
+    private final long         mThreadId     = Thread.currentThread().getId();
+    // Bytes allocated by reading the allocation counter itself
+    private final long         mAllocationCounterCost;
+
+    private int        mLayouts;
+    private long       mFrameIntervalMillis;
+    private Parcelable mRestoredState;
+
+    SwipeFrameHarness(int tabCount) {
+        mActivity = Robolectric.setupActivity(Activity.class);
+        mRoot = new WindowRoot(mActivity);
+        mViewPager = new ScriptedPager(mActivity);
+        mAdapter = new TitlesAdapter(tabCount);
+        mViewPager.setAdapter(mAdapter);
+        mTabLayout = new SlidingTabLayout(mActivity);
+        mTabLayout.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                mLayouts++;
+            }
+        });
+        mRoot.addView(mTabLayout, new FrameLayout.LayoutParams(WIDTH, HEIGHT));
+
+        long cost = Long.MAX_VALUE;
+        for (int i = 0; i < 16; i++) {
+            cost = Math.min(cost, -allocatedBytes() + allocatedBytes());
+        }
+        mAllocationCounterCost = cost;
+    }
+
+    /**
+     * @return the tab layout, to be configured before {@link #start()}.
+     */
+    SlidingTabLayout getTabLayout() {
+        return mTabLayout;
+    }
+
+    /**
+     * Let the clock advance by {@code frameIntervalMillis} before each frame, for animations. By
+     * default the clock stands still, so that time-based callbacks do not vary the frame costs.
+     */
+    SwipeFrameHarness setFrameIntervalMillis(long frameIntervalMillis) {
+        mFrameIntervalMillis = frameIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Restore {@code state} into the tab layout once the pager is bound, before it is attached, as
+     * after a configuration change.
+     */
+    SwipeFrameHarness restoreState(Parcelable state) {
+        mRestoredState = state;
+        return this;
+    }
+
+    ViewPager getViewPager() {
+        return mViewPager;
+    }
+
+    /**
+     * Remove the page at {@code position} from the adapter, shifting the later pages down.
+     */
+    void removePage(int position) {
+        mAdapter.removePage(position);
+    }
+
+    /**
+     * Replace the page titles and notify the tab layout, keeping the current item.
+     */
+    void setPageTitles(List<String> titles) {
+        mAdapter.setTitles(titles);
+    }
+
+    /**
+     * @return another pager, not driven by the scripts, with pages of the given titles.
+     */
+    ViewPager createViewPager(List<String> titles) {
+        final TitlesAdapter adapter = new TitlesAdapter(0);
+        adapter.setTitles(titles);
+        final ViewPager viewPager = new ViewPager(mActivity);
+        viewPager.setAdapter(adapter);
+        return viewPager;
+    }
+
+    SwipeFrameHarness setCustomTabView(int layoutResId, int textViewId) {
+        mTabLayout.setCustomTabView(layoutResId, textViewId);
+        return this;
+    }
+
+    /**
+     * Bind the pager, attach the tab layout to the window and draw the first frame.
+     */
+    SwipeFrameHarness start() {
+        ShadowLooper.pauseMainLooper();
+        mTabLayout.setViewPager(mViewPager);
+        if (mRestoredState != null) {
+            mTabLayout.onRestoreInstanceState(mRestoredState);
+        }
+        return attach();
+    }
+
+    /**
+     * Attach the tab layout to the window and draw the first frame, leaving the pager as it is.
+     */
+    SwipeFrameHarness attach() {
+        ShadowLooper.pauseMainLooper();
+        mActivity.setContentView(mRoot);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        DrawingTestRunner.doFrame();
+        mRoot.draw(mCanvas);
+        return this;
+    }
+
+    /**
+     * @return whether this JVM counts the bytes allocated by a thread. If it does not,
+     * {@link FrameStats#allocatedBytes} is always zero.
+     */
+    boolean countsAllocations() {
+        return mThreadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) mThreadMXBean).isThreadAllocatedMemoryEnabled();
+    }
+
+    FrameStats run(SwipeScript script) {
+        final FrameStats stats = new FrameStats();
+        final ArrayList<ViewPager.OnPageChangeListener> listeners = mViewPager.mListeners;
+        mRoot.mInvalidations = 0;
+        mCanvas.mDrawCalls = 0;
+        mLayouts = 0;
+
+        final int frameCount = script.getFrameCount();
+        for (int frame = 0; frame < frameCount; frame++) {
+            long allocated = allocatedBytes();
+            for (int event = script.getFirstEvent(frame); event < script.getEventEnd(frame); event++) {
+                final int value = script.getValue(event);
+                if (script.getType(event) == SwipeScript.PAGE_SELECTED) {
+                    mViewPager.mCurrentItem = value;
+                }
+                for (int i = 0; i < listeners.size(); i++) {
+                    ViewPager.OnPageChangeListener listener = listeners.get(i);
+                    switch (script.getType(event)) {
+                        case SwipeScript.PAGE_SCROLLED:
+                            final float offset = script.getOffset(event);
+                            listener.onPageScrolled(value, offset, (int) (offset * WIDTH));
+                            break;
+                        case SwipeScript.PAGE_SELECTED:
+                            listener.onPageSelected(value);
+                            break;
+                        case SwipeScript.PAGE_SCROLL_STATE_CHANGED:
+                            listener.onPageScrollStateChanged(value);
+                            break;
+                    }
+                }
+            }
+            stats.allocatedBytes += allocatedBytes() - allocated - mAllocationCounterCost;
+
+            if (mFrameIntervalMillis > 0) {
+                ShadowLooper.idleMainLooper(mFrameIntervalMillis, TimeUnit.MILLISECONDS);
+            } else {
+                ShadowLooper.runUiThreadTasks();
+            }
+
+            allocated = allocatedBytes();
+            DrawingTestRunner.doFrame();
+            stats.allocatedBytes += allocatedBytes() - allocated - mAllocationCounterCost;
+
+            if (mRoot.isDirty()) {
+                allocated = allocatedBytes();
+                mRoot.draw(mCanvas);
+                stats.allocatedBytes += allocatedBytes() - allocated - mAllocationCounterCost;
+                stats.draws++;
+            }
+            stats.frames++;
+        }
+
+        stats.drawCalls = mCanvas.mDrawCalls;
+        stats.invalidations = mRoot.mInvalidations;
+        stats.layouts = mLayouts;
+        return stats;
+    }
+
+    private long allocatedBytes() {
+        if (countsAllocations()) {
+            return ((com.sun.management.ThreadMXBean) mThreadMXBean).getThreadAllocatedBytes(mThreadId);
+        }
+        return 0;
+    }
+
+    /**
+     * Content view of the window. It counts the invalidations reaching it and keeps them from
+     * scheduling a traversal, since the harness draws the window itself.
+     */
+    private static class WindowRoot extends FrameLayout {
+        int mInvalidations;
+
+        WindowRoot(Context context) {
+            super(context);
+        }
+
+        @Override
+        public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+            mInvalidations++;
+            super.invalidateChildInParent(location, dirty);
+            return null;
+        }
+    }
+
+    /**
+     * A pager whose page change listeners are called by the harness instead of by touch events.
+     */
+    private static class ScriptedPager extends ViewPager {
+        final ArrayList<OnPageChangeListener> mListeners = new ArrayList<OnPageChangeListener>();
+        int mCurrentItem;
+
+        ScriptedPager(Context context) {
+            super(context);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void setOnPageChangeListener(OnPageChangeListener listener) {
+            mListeners.clear();
+            if (listener != null) {
+                mListeners.add(listener);
+            }
+        }
+
+        @Override
+        public void addOnPageChangeListener(OnPageChangeListener listener) {
+            mListeners.add(listener);
+        }
+
+        @Override
+        public void removeOnPageChangeListener(OnPageChangeListener listener) {
+            mListeners.remove(listener);
+        }
+
+        @Override
+        public int getCurrentItem() {
+            return mCurrentItem;
+        }
+
+        @Override
+        public void setCurrentItem(int item) {
+            mCurrentItem = item;
+        }
+
+        @Override
+        public void setCurrentItem(int item, boolean smoothScroll) {
+            mCurrentItem = item;
+        }
+    }
+
+    private static class TitlesAdapter extends PagerAdapter {
+        private final ArrayList<String> mTitles = new ArrayList<String>();
+
+        TitlesAdapter(int count) {
+            for (int i = 0; i < count; i++) {
+                mTitles.add("Tab " + i);
+            }
+        }
+
+        void removePage(int position) {
+            mTitles.remove(position);
+            notifyDataSetChanged();
+        }
+
+        void setTitles(List<String> titles) {
+            mTitles.clear();
+            mTitles.addAll(titles);
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public int getCount() {
+            return mTitles.size();
+        }
+
+        @Override
+        public CharSequence getPageTitle(int position) {
+            return mTitles.get(position);
+        }
+
+        @Override
+        public boolean isViewFromObject(View view, Object object) {
+            return view == object;
+        }
+
+        @Override
+        public Object instantiateItem(ViewGroup container, int position) {
+            return position;
+        }
+
+        @Override
+        public void destroyItem(ViewGroup container, int position, Object object) {
+        }
+    }
+
+    /**
+     * Counts the draw calls made on it without rasterizing anything.
+     */
+    private static class CountingCanvas extends Canvas {
+        long mDrawCalls;
+
+        // Text layouts only draw the lines within the clip, which Robolectric's canvas has none of
+        @Override
+        public boolean getClipBounds(Rect bounds) {
+            bounds.set(-TEXT_CLIP, -TEXT_CLIP, TEXT_CLIP, TEXT_CLIP);
+            return true;
+        }
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawRect(Rect r, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawRect(RectF rect, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawColor(int color) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawText(String text, int start, int end, float x, float y, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawTextRun(char[] text, int index, int count, int contextIndex,
+                                int contextCount, float x, float y, boolean isRtl, Paint paint) {
+            mDrawCalls++;
+        }
+
+        @Override
+        public void drawTextRun(CharSequence text, int start, int end, int contextStart,
+                                int contextEnd, float x, float y, boolean isRtl, Paint paint) {
+            mDrawCalls++;
+        }
+    }
+}
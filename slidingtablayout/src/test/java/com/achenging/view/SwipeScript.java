@@ -0,0 +1,150 @@
+package com.achenging.view;
+
+import android.support.v4.view.ViewPager;
+
+import java.util.Arrays;
+
+/**
+ * A scripted sequence of {@link ViewPager.OnPageChangeListener} callbacks, grouped into frames.
+ * Events are kept in flat arrays so that replaying a script allocates nothing.
+ */
+final class SwipeScript {
+
+    static final int PAGE_SCROLLED             = 0;
+    static final int PAGE_SELECTED             = 1;
+    static final int PAGE_SCROLL_STATE_CHANGED = 2;
+
+    private int     mEventCount;
+    private int[]   mTypes   = new int[16];
+    private int[]   mValues  = new int[16];
+    private float[] mOffsets = new float[16];
+
+    private int   mFrameCount;
+    private int[] mFrameEnds = new int[16];
+
+    /**
+     * A finger drag from page {@code from} to the adjacent page {@code to}, released halfway and
+     * settled over {@code framesPerPage} frames in total, as {@link ViewPager} reports it.
+     */
+    static SwipeScript swipe(int from, int to, int framesPerPage) {
+        return new SwipeScript().appendSwipe(from, to, framesPerPage);
+    }
+
+    /**
+     * Swipes from page {@code from} to page {@code to}, one page at a time.
+     */
+    static SwipeScript swipeAcross(int from, int to, int framesPerPage) {
+        return new SwipeScript().appendSwipeAcross(from, to, framesPerPage);
+    }
+
+    /**
+     * A programmatic {@link ViewPager#setCurrentItem(int)} from page {@code from} to page
+     * {@code to}, scrolling through every page in between over {@code frames} frames.
+     */
+    static SwipeScript smoothScroll(int from, int to, int frames) {
+        final SwipeScript script = new SwipeScript();
+        script.pageScrollStateChanged(ViewPager.SCROLL_STATE_SETTLING).pageSelected(to);
+        for (int frame = 1; frame < frames; frame++) {
+            float page = from + (to - from) * frame / (float) frames;
+            script.pageScrolled((int) page, page - (int) page).endFrame();
+        }
+        return script.pageScrolled(to, 0f)
+                .pageScrollStateChanged(ViewPager.SCROLL_STATE_IDLE)
+                .endFrame();
+    }
+
+    SwipeScript appendSwipeAcross(int from, int to, int framesPerPage) {
+        final int step = to > from ? 1 : -1;
+        for (int page = from; page != to; page += step) {
+            appendSwipe(page, page + step, framesPerPage);
+        }
+        return this;
+    }
+
+    SwipeScript appendSwipe(int from, int to, int framesPerPage) {
+        // The pager reports the offset from the left one of the two pages involved
+        final int left = Math.min(from, to);
+        final int released = framesPerPage / 2;
+
+        pageScrollStateChanged(ViewPager.SCROLL_STATE_DRAGGING);
+        for (int frame = 1; frame <= framesPerPage; frame++) {
+            float progress = frame / (float) framesPerPage;
+            if (frame == released) {
+                pageScrollStateChanged(ViewPager.SCROLL_STATE_SETTLING);
+                pageSelected(to);
+            }
+            if (frame < framesPerPage) {
+                pageScrolled(left, to > from ? progress : 1f - progress);
+            } else {
+                pageScrolled(to, 0f);
+                pageScrollStateChanged(ViewPager.SCROLL_STATE_IDLE);
+            }
+            endFrame();
+        }
+        return this;
+    }
+
+    SwipeScript pageScrolled(int position, float positionOffset) {
+        return addEvent(PAGE_SCROLLED, position, positionOffset);
+    }
+
+    SwipeScript pageSelected(int position) {
+        return addEvent(PAGE_SELECTED, position, 0f);
+    }
+
+    SwipeScript pageScrollStateChanged(int state) {
+        return addEvent(PAGE_SCROLL_STATE_CHANGED, state, 0f);
+    }
+
+    /**
+     * Close the current frame; the events added since the previous frame are replayed together.
+     */
+    SwipeScript endFrame() {
+        if (mFrameCount == mFrameEnds.length) {
+            mFrameEnds = Arrays.copyOf(mFrameEnds, mFrameCount * 2);
+        }
+        mFrameEnds[mFrameCount++] = mEventCount;
+        return this;
+    }
+
+    int getFrameCount() {
+        return mFrameCount;
+    }
+
+    int getFirstEvent(int frame) {
+        return frame == 0 ? 0 : mFrameEnds[frame - 1];
+    }
+
+    int getEventEnd(int frame) {
+        return mFrameEnds[frame];
+    }
+
+    int getType(int event) {
+        return mTypes[event];
+    }
+
+    /**
+     * @return the position of a scroll or selection event, or the state of a state change.
+     */
+    int getValue(int event) {
+        return mValues[event];
+    }
+
+    float getOffset(int event) {
+        return mOffsets[event];
+    }
+
+    private SwipeScript addEvent(int type, int value, float offset) {
+        if (mEventCount == mTypes.length) {
+            final int capacity = mEventCount * 2;
+            mTypes = Arrays.copyOf(mTypes, capacity);
+            mValues = Arrays.copyOf(mValues, capacity);
+            mOffsets = Arrays.copyOf(mOffsets, capacity);
+        }
+        mTypes[mEventCount] = type;
+        mValues[mEventCount] = value;
+        mOffsets[mEventCount] = offset;
+        mEventCount++;
+        return this;
+    }
+}
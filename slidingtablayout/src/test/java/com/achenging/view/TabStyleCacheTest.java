@@ -0,0 +1,87 @@
+package com.achenging.view;
+
+import android.app.Activity;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link TabStyleCache} resolves a theme and attribute set once and shares the result.
+ */
+@RunWith(DrawingTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TabStyleCacheTest {
+
+    @Test
+    public void sameThemeAndAttributes_shareOneStyle() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        TabStyleCache cache = TabStyleCache.get(activity);
+        assertSame(cache, TabStyleCache.get(activity));
+
+        AttributeSet first = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.tabIndicatorColor, "#ff00ff00")
+                .build();
+        AttributeSet second = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.tabIndicatorColor, "#ff00ff00")
+                .build();
+        TabStyleCache.LayoutStyle style = getLayoutStyle(cache, activity, first);
+
+        assertSame(style, getLayoutStyle(cache, activity, second));
+        assertResolvedLike(activity, first, style);
+    }
+
+    @Test
+    public void differentAttributes_resolveTheirOwnStyle() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        TabStyleCache cache = TabStyleCache.get(activity);
+
+        AttributeSet divided = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.showAsDivider, "true")
+                .build();
+        TabStyleCache.LayoutStyle plain = getLayoutStyle(cache, activity, null);
+        TabStyleCache.LayoutStyle style = getLayoutStyle(cache, activity, divided);
+
+        assertNotSame(plain, style);
+        assertResolvedLike(activity, null, plain);
+        assertResolvedLike(activity, divided, style);
+    }
+
+    @Test
+    public void tabLayouts_resolveSelectableBackgroundOncePerTheme() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        SlidingTabLayout tabLayout = new SlidingTabLayout(activity);
+
+        assertNotEquals(0, TabStyleCache.get(activity).getSelectableItemBackground());
+        assertNotNull(tabLayout.createDefaultTabView(activity).getBackground());
+    }
+
+    /**
+     * Assert that {@code style} holds what resolving {@code attrs} right away gives.
+     */
+    private static void assertResolvedLike(Activity activity, AttributeSet attrs,
+                                           TabStyleCache.LayoutStyle style) {
+        TypedArray a = activity.obtainStyledAttributes(attrs, R.styleable.SlidingTabLayout);
+        TabStyleCache.LayoutStyle expected = new TabStyleCache.LayoutStyle(a, 2, 0xff999999, 1, 1, 0);
+        a.recycle();
+        assertEquals(expected.selectedTextColor, style.selectedTextColor);
+        assertEquals(expected.textColor, style.textColor);
+        assertEquals(expected.indicatorThickness, style.indicatorThickness);
+        assertEquals(expected.indicatorColor, style.indicatorColor);
+        assertEquals(expected.dividerThickness, style.dividerThickness);
+        assertEquals(expected.dividerColor, style.dividerColor);
+        assertEquals(expected.bottomBorderThickness, style.bottomBorderThickness);
+        assertEquals(expected.bottomBorderColor, style.bottomBorderColor);
+        assertEquals(expected.showAsDivider, style.showAsDivider);
+    }
+
+    private static TabStyleCache.LayoutStyle getLayoutStyle(TabStyleCache cache, Activity activity,
+                                                          AttributeSet attrs) {
+        return cache.getLayoutStyle(activity, attrs, 2, 0xff999999, 1, 1, 0);
+    }
+}